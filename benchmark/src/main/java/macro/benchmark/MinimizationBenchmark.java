@@ -0,0 +1,36 @@
+package macro.benchmark;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/** End-to-end benchmarks for computing macro definitions and size-minimal rewritings. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class MinimizationBenchmark {
+
+  @Benchmark
+  public Object macroDefinitions(OntologyState state) {
+    return new macro.minimization.fixed.MacroDefinitions(state.owlOntology);
+  }
+
+  @Benchmark
+  public Object problem1(OntologyState state) {
+    return new macro.minimization.fixed.RewritingSystem(state.owlOntology);
+  }
+
+  @Benchmark
+  public Object problem2(OntologyState state) {
+    macro.minimization.fixed.RewritingSystem system =
+        new macro.minimization.fixed.RewritingSystem(state.owlOntology);
+    system.computeMinimalMacroDefinitions();
+    return system;
+  }
+
+  @Benchmark
+  public Object problem3(OntologyState state) {
+    return new macro.minimization.general.RewritingSystem(state.owlOntology);
+  }
+}
@@ -0,0 +1,55 @@
+package macro.benchmark;
+
+import java.io.*;
+import java.util.*;
+import macro.ont.*;
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.model.*;
+
+/**
+ * The ontology a benchmark is run against.
+ *
+ * <p>The parameter 'ontology' is either the name of a synthetic ontology ('small', 'medium',
+ * 'large') or the path to an ontology file, e.g., '-p ontology=/path/to/ontology.owl'.
+ */
+@State(Scope.Benchmark)
+public class OntologyState {
+
+  // number of axioms of the synthetic ontologies
+  private static final Map<String, Integer> SIZES =
+      Map.of("small", 1000, "medium", 10000, "large", 50000);
+  private static final long SEED = 42;
+
+  @Param({"small", "medium", "large"})
+  public String ontology;
+
+  public OWLOntology owlOntology;
+  // class expression axioms (without annotations)
+  public List<OWLAxiom> axioms;
+  // all class expressions occurring in the axioms
+  public List<OWLClassExpression> expressions;
+
+  @Setup(Level.Trial)
+  public void load() throws OWLOntologyCreationException {
+    if (SIZES.containsKey(this.ontology)) {
+      this.owlOntology = SyntheticOntology.generate(SIZES.get(this.ontology), SEED);
+    } else {
+      this.owlOntology = new OntologyLoader(new File(this.ontology), true).getOntology();
+    }
+
+    this.axioms = new ArrayList<>();
+    Set<OWLClassExpression> expressions = new LinkedHashSet<>();
+    for (OWLAxiom a : this.owlOntology.getLogicalAxioms()) {
+      if (a.isOfType(
+          AxiomType.SUBCLASS_OF,
+          AxiomType.EQUIVALENT_CLASSES,
+          AxiomType.DISJOINT_CLASSES,
+          AxiomType.DISJOINT_UNION)) {
+        OWLAxiom axiom = a.getAxiomWithoutAnnotations();
+        this.axioms.add(axiom);
+        expressions.addAll(axiom.getNestedClassExpressions());
+      }
+    }
+    this.expressions = new ArrayList<>(expressions);
+  }
+}
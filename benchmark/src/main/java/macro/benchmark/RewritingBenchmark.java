@@ -0,0 +1,102 @@
+package macro.benchmark;
+
+import java.util.*;
+import java.util.concurrent.*;
+import macro.parser.*;
+import macro.structure.*;
+import macro.term.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+/**
+ * Benchmarks for rewriting and compiling syntax trees.
+ *
+ * <p>In each axiom, its largest (complex) subterm is replaced with a named class.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class RewritingBenchmark {
+
+  private SyntaxTreeBuilder builder;
+  private OWLRewriter rewriter;
+  private OWLClass replacement;
+
+  // axioms with a complex subterm and their largest complex subterm
+  private List<OWLAxiom> axioms;
+  private List<OWLClassExpression> targets;
+
+  // syntax trees that are rewritten (rebuilt for every operation since rewriting changes them)
+  private List<SyntaxTree> trees;
+  private List<CompactSyntaxTree> compactTrees;
+  // syntax trees that are compiled
+  private List<SyntaxTree> compiledTrees;
+
+  @Setup(Level.Trial)
+  public void setup(OntologyState state) {
+    this.builder = new SyntaxTreeBuilder();
+    this.rewriter = new OWLRewriter();
+    this.replacement =
+        OWLManager.getOWLDataFactory().getOWLClass(IRI.create("http://example.org/benchmark#M"));
+
+    TermSizeVisitor sizeVisitor = new TermSizeVisitor();
+    this.axioms = new ArrayList<>();
+    this.targets = new ArrayList<>();
+    this.compiledTrees = new ArrayList<>();
+    for (OWLAxiom a : state.axioms) {
+      OWLClassExpression target = null;
+      for (OWLClassExpression e : a.getNestedClassExpressions()) {
+        if (!e.isOWLClass()
+            && (target == null || sizeVisitor.getSize(e) > sizeVisitor.getSize(target))) {
+          target = e;
+        }
+      }
+      if (target != null) {
+        this.axioms.add(a);
+        this.targets.add(target);
+      }
+      this.compiledTrees.add(this.builder.build(a));
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void buildTrees() {
+    this.trees = new ArrayList<>();
+    this.compactTrees = new ArrayList<>();
+    for (OWLAxiom a : this.axioms) {
+      this.trees.add(this.builder.build(a));
+      this.compactTrees.add(this.builder.buildCompact(a));
+    }
+  }
+
+  @Benchmark
+  public void rewrite(Blackhole bh) {
+    for (int i = 0; i < this.trees.size(); i++) {
+      SyntaxTree tree = this.trees.get(i);
+      this.rewriter.rewrite(tree, this.targets.get(i), this.replacement);
+      bh.consume(tree.getRoot().getObject());
+    }
+  }
+
+  @Benchmark
+  public void rewriteCompact(Blackhole bh) {
+    for (int i = 0; i < this.compactTrees.size(); i++) {
+      CompactSyntaxTree tree =
+          this.rewriter.rewrite(this.compactTrees.get(i), this.targets.get(i), this.replacement);
+      bh.consume(tree.getRoot().getObject());
+    }
+  }
+
+  @Benchmark
+  public void compile(Blackhole bh) {
+    for (SyntaxTree tree : this.compiledTrees) {
+      new OWLCompiler(tree).compile();
+      bh.consume(tree.getRoot().getObject());
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package macro.benchmark;
+
+import java.util.concurrent.*;
+import macro.parser.*;
+import macro.structure.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+import org.semanticweb.owlapi.model.*;
+
+/** Benchmarks for building syntax trees (one operation covers all axioms of an ontology). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class SyntaxTreeBenchmark {
+
+  private SyntaxTreeBuilder builder;
+  private TermSizeVisitor sizeVisitor;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    this.builder = new SyntaxTreeBuilder();
+    this.sizeVisitor = new TermSizeVisitor();
+  }
+
+  @Benchmark
+  public void buildAxioms(OntologyState state, Blackhole bh) {
+    for (OWLAxiom a : state.axioms) {
+      bh.consume(this.builder.build(a));
+    }
+  }
+
+  @Benchmark
+  public void buildExpressions(OntologyState state, Blackhole bh) {
+    for (OWLClassExpression e : state.expressions) {
+      bh.consume(this.builder.build(e));
+    }
+  }
+
+  @Benchmark
+  public void buildCompactAxioms(OntologyState state, Blackhole bh) {
+    for (OWLAxiom a : state.axioms) {
+      bh.consume(this.builder.buildCompact(a));
+    }
+  }
+
+  @Benchmark
+  public void measureAxioms(OntologyState state, Blackhole bh) {
+    // NB: sizes of class expressions are cached across operations
+    for (OWLAxiom a : state.axioms) {
+      bh.consume(this.sizeVisitor.getSize(a));
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package macro.benchmark;
+
+import java.util.concurrent.*;
+import macro.structure.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+import org.semanticweb.owlapi.model.*;
+
+/** Benchmarks for ordering the subterms of axioms by size. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class SyntaxTreeUtilBenchmark {
+
+  private SyntaxTreeUtil util;
+  // sizes are looked up in a subterm DAG (as done by the rewriting systems)
+  private SyntaxTreeUtil dagUtil;
+
+  @Setup(Level.Trial)
+  public void setup(OntologyState state) {
+    this.util = new SyntaxTreeUtil();
+    SubtermDAG dag = new SubtermDAG();
+    for (OWLAxiom a : state.axioms) {
+      dag.add(a);
+    }
+    this.dagUtil = new SyntaxTreeUtil(dag);
+  }
+
+  @Benchmark
+  public void size2expressions(OntologyState state, Blackhole bh) {
+    for (OWLAxiom a : state.axioms) {
+      bh.consume(this.util.size2expressions(a));
+    }
+  }
+
+  @Benchmark
+  public void size2expressionsWithDAG(OntologyState state, Blackhole bh) {
+    for (OWLAxiom a : state.axioms) {
+      bh.consume(this.dagUtil.size2expressions(a));
+    }
+  }
+}
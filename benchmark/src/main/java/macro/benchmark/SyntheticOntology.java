@@ -0,0 +1,158 @@
+package macro.benchmark;
+
+import java.util.*;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+/**
+ * Generator for synthetic ontologies.
+ *
+ * <p>Generated ontologies contain nested class expressions (that are partially reused across axioms
+ * so that macros can be introduced), definitions EquivalentClasses(D,C) (some of which depend on
+ * other definitions), an ambiguous definition, a cyclic pair of definitions, and axioms that are
+ * ignored by the rewriting systems. The same arguments always yield the same ontology.
+ */
+public class SyntheticOntology {
+
+  private static final String NS = "http://example.org/benchmark#";
+
+  private OWLDataFactory factory;
+  private Random random;
+  private List<OWLClass> classes;
+  private List<OWLObjectProperty> properties;
+  // class expressions that are reused in later axioms
+  private List<OWLClassExpression> reused;
+
+  private SyntheticOntology(OWLDataFactory factory, long seed) {
+    this.factory = factory;
+    this.random = new Random(seed);
+    this.classes = new ArrayList<>();
+    this.properties = new ArrayList<>();
+    this.reused = new ArrayList<>();
+  }
+
+  /**
+   * Generates an ontology.
+   *
+   * @param axioms the (approximate) number of logical axioms
+   * @param seed the seed for the random number generator
+   * @return the generated ontology
+   */
+  public static OWLOntology generate(int axioms, long seed) throws OWLOntologyCreationException {
+    OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+    OWLOntology ontology = manager.createOntology(IRI.create(NS + axioms));
+    SyntheticOntology generator = new SyntheticOntology(manager.getOWLDataFactory(), seed);
+    manager.addAxioms(ontology, generator.getAxioms(axioms));
+    return ontology;
+  }
+
+  private Set<OWLAxiom> getAxioms(int n) {
+    OWLDataFactory f = this.factory;
+    for (int i = 0; i < Math.max(10, n / 3); i++) {
+      this.classes.add(f.getOWLClass(IRI.create(NS + "C" + i)));
+    }
+    for (int i = 0; i < 6; i++) {
+      this.properties.add(f.getOWLObjectProperty(IRI.create(NS + "p" + i)));
+    }
+    OWLDataProperty dataProperty = f.getOWLDataProperty(IRI.create(NS + "d"));
+
+    Set<OWLAxiom> axioms = new HashSet<>();
+
+    // definitions (depending on previously introduced definitions)
+    for (int i = 0; i < n / 5; i++) {
+      OWLClass d = f.getOWLClass(IRI.create(NS + "D" + i));
+      OWLClassExpression dependency = i > 0 ? getDefinition(this.random.nextInt(i)) : expression(1);
+      axioms.add(
+          f.getOWLEquivalentClassesAxiom(
+              d, f.getOWLObjectIntersectionOf(expression(3), dependency)));
+      this.classes.add(d);
+    }
+    // ambiguous definition
+    axioms.add(f.getOWLEquivalentClassesAxiom(getDefinition(0), expression(2)));
+    // cyclic definitions
+    OWLClass x = f.getOWLClass(IRI.create(NS + "X"));
+    OWLClass y = f.getOWLClass(IRI.create(NS + "Y"));
+    axioms.add(f.getOWLEquivalentClassesAxiom(x, f.getOWLObjectSomeValuesFrom(property(), y)));
+    axioms.add(f.getOWLEquivalentClassesAxiom(y, f.getOWLObjectSomeValuesFrom(property(), x)));
+
+    for (int i = 0; i < n; i++) {
+      int type = this.random.nextInt(10);
+      if (type < 7) {
+        axioms.add(f.getOWLSubClassOfAxiom(expression(3), expression(4)));
+      } else if (type < 8) {
+        axioms.add(f.getOWLDisjointClassesAxiom(expression(2), expression(3)));
+      } else if (type < 9) {
+        axioms.add(f.getOWLEquivalentClassesAxiom(expression(3), expression(3)));
+      } else {
+        axioms.add(
+            f.getOWLSubClassOfAxiom(
+                namedClass(), f.getOWLDataSomeValuesFrom(dataProperty, f.getIntegerOWLDatatype())));
+      }
+    }
+    axioms.add(
+        f.getOWLDisjointUnionAxiom(
+            this.classes.get(0),
+            new HashSet<>(
+                Arrays.asList(
+                    this.classes.get(1),
+                    f.getOWLObjectSomeValuesFrom(property(), this.classes.get(2))))));
+    // axioms with negation are ignored by the general rewriting system
+    axioms.add(
+        f.getOWLSubClassOfAxiom(
+            this.classes.get(3), f.getOWLObjectComplementOf(this.classes.get(4))));
+    return axioms;
+  }
+
+  private OWLClassExpression expression(int depth) {
+    if (depth == 0 || this.random.nextInt(4) == 0) {
+      return namedClass();
+    }
+    if (!this.reused.isEmpty() && this.random.nextInt(3) == 0) {
+      return this.reused.get(this.random.nextInt(this.reused.size()));
+    }
+    OWLDataFactory f = this.factory;
+    OWLClassExpression e;
+    switch (this.random.nextInt(7)) {
+      case 0:
+      case 1:
+        e = f.getOWLObjectSomeValuesFrom(property(), expression(depth - 1));
+        break;
+      case 2:
+        e = f.getOWLObjectAllValuesFrom(property(), expression(depth - 1));
+        break;
+      case 3:
+        e = f.getOWLObjectIntersectionOf(expression(depth - 1), expression(depth - 1));
+        break;
+      case 4:
+        e =
+            f.getOWLObjectUnionOf(
+                expression(depth - 1), expression(depth - 1), expression(depth - 1));
+        break;
+      case 5:
+        e =
+            f.getOWLObjectMinCardinality(
+                1 + this.random.nextInt(3), property(), expression(depth - 1));
+        break;
+      default:
+        e =
+            f.getOWLObjectExactCardinality(
+                1 + this.random.nextInt(3), property(), expression(depth - 1));
+    }
+    if (this.random.nextInt(3) == 0) {
+      this.reused.add(e);
+    }
+    return e;
+  }
+
+  private OWLClass getDefinition(int i) {
+    return this.factory.getOWLClass(IRI.create(NS + "D" + i));
+  }
+
+  private OWLClass namedClass() {
+    return this.classes.get(this.random.nextInt(this.classes.size()));
+  }
+
+  private OWLObjectProperty property() {
+    return this.properties.get(this.random.nextInt(this.properties.size()));
+  }
+}
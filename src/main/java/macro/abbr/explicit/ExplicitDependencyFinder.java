@@ -8,6 +8,10 @@ import macro.parser.*;
 import macro.structure.*;
 import macro.structure.nodes.*;
 import macro.util.*;
+import org.jgrapht.*;
+import org.jgrapht.alg.connectivity.*;
+import org.jgrapht.graph.*;
+import org.jgrapht.traverse.*;
 import org.semanticweb.owlapi.model.*;
 import org.semanticweb.owlapi.model.parameters.*;
 import org.semanticweb.owlapi.util.*;
@@ -17,9 +21,23 @@ public class ExplicitDependencyFinder {
   // TODO: this currently only handles abbreviations
   private OWLOntology ontology;
   private Map<OWLClass, Set<OWLClass>> directDependencies;
+  // (transitive) dependencies are only computed on demand:
+  // abbreviations are identified by dense ids and the dependencies of an abbreviation are stored
+  // as a bit set over these ids (abbreviations in the same strongly connected component share
+  // their bit set). 'dependencies' is a read-only view of the bit sets
+  private List<OWLClass> id2class;
+  private Map<OWLClass, Integer> class2id;
+  private BitSet[] id2dependencies;
   private Map<OWLClass, Set<OWLClass>> dependencies;
   private ExplicitDefinitionFinder definitionFinder;
 
+  // abbreviations with an edge from N to N' if N directly depends on N'
+  private Graph<OWLClass, DefaultEdge> dependencyGraph;
+  // strongly connected components of the dependency graph
+  // (a class is cyclic iff its component contains a cycle)
+  private Graph<Graph<OWLClass, DefaultEdge>, DefaultEdge> condensation;
+  private Set<OWLClass> cyclicClasses;
+
   public ExplicitDependencyFinder(OWLOntology o) {
     this.ontology = o;
     this.init();
@@ -27,10 +45,9 @@ public class ExplicitDependencyFinder {
 
   private void init() {
     this.directDependencies = new HashMap<>();
-    this.dependencies = new HashMap<>();
     this.definitionFinder = new ExplicitDefinitionFinder(this.ontology);
     this.findDirectDependencies();
-    this.findDependencies();
+    this.findCyclicClasses();
   }
 
   public ExplicitDefinitionFinder getDefinitionFinder() {
@@ -57,52 +74,204 @@ public class ExplicitDependencyFinder {
     }
   }
 
+  private void findCyclicClasses() {
+    this.dependencyGraph = new DefaultDirectedGraph<>(DefaultEdge.class);
+    for (OWLClass c : this.directDependencies.keySet()) {
+      this.dependencyGraph.addVertex(c);
+    }
+    for (Map.Entry<OWLClass, Set<OWLClass>> set : this.directDependencies.entrySet()) {
+      for (OWLClass d : set.getValue()) {
+        this.dependencyGraph.addEdge(set.getKey(), d);
+      }
+    }
+
+    this.condensation =
+        new KosarajuStrongConnectivityInspector<>(this.dependencyGraph).getCondensation();
+
+    // a component contains a cycle if it consists of more than one class
+    // or if its only class depends on itself
+    this.cyclicClasses = new HashSet<>();
+    for (Graph<OWLClass, DefaultEdge> component : this.condensation.vertexSet()) {
+      Set<OWLClass> classes = component.vertexSet();
+      if (classes.size() > 1 || !component.edgeSet().isEmpty()) {
+        this.cyclicClasses.addAll(classes);
+      }
+    }
+  }
+
+  // (transitive) dependencies are collected component by component in reverse topological order
+  // of the condensation, i.e., the dependencies of a component are the union of the classes and
+  // dependencies of the components it has edges to (and its own classes if it is cyclic)
   private void findDependencies() {
-    // Set<OWLClass> abbreviations = this.definitionFinder.getAbbreviations();
-    Map<OWLClass, Set<OWLClassExpression>> abbreviation2expressions =
-        this.definitionFinder.getAbbreviation2expressions();
+    List<Graph<OWLClass, DefaultEdge>> order = new ArrayList<>();
+    new TopologicalOrderIterator<>(this.condensation).forEachRemaining(order::add);
 
-    for (Map.Entry<OWLClass, Set<OWLClassExpression>> set : abbreviation2expressions.entrySet()) {
-      Set<OWLClass> dependencies = new HashSet<>();
-      Set<OWLClassExpression> current = new HashSet<>();
-      Set<OWLClassExpression> next = new HashSet<>();
-      current.addAll(set.getValue());
-      while (!current.isEmpty()) {
-        for (OWLClassExpression exp : current) {
-          for (OWLClassExpression nested : exp.getNestedClassExpressions()) {
-            if (nested.isNamed()) {
-              OWLClass named = (OWLClass) nested;
-              if (abbreviation2expressions.containsKey(named) && !dependencies.contains(named)) {
-                next.addAll(abbreviation2expressions.get(named));
-                dependencies.add(named);
-              }
-            }
-          }
-        }
-        current.clear();
-        current.addAll(next);
-        next.clear();
+    // classes of a component get consecutive ids
+    this.id2class = new ArrayList<>();
+    this.class2id = new HashMap<>();
+    Map<Graph<OWLClass, DefaultEdge>, BitSet> component2classes = new IdentityHashMap<>();
+    for (Graph<OWLClass, DefaultEdge> component : order) {
+      BitSet classes = new BitSet();
+      for (OWLClass c : component.vertexSet()) {
+        classes.set(this.id2class.size());
+        this.class2id.put(c, this.id2class.size());
+        this.id2class.add(c);
+      }
+      component2classes.put(component, classes);
+    }
+
+    this.id2dependencies = new BitSet[this.id2class.size()];
+    Map<Graph<OWLClass, DefaultEdge>, BitSet> component2dependencies = new IdentityHashMap<>();
+    for (int i = order.size() - 1; i >= 0; i--) {
+      Graph<OWLClass, DefaultEdge> component = order.get(i);
+      BitSet dependencies = new BitSet();
+      for (DefaultEdge e : this.condensation.outgoingEdgesOf(component)) {
+        Graph<OWLClass, DefaultEdge> target = this.condensation.getEdgeTarget(e);
+        dependencies.or(component2classes.get(target));
+        dependencies.or(component2dependencies.get(target));
+      }
+      BitSet classes = component2classes.get(component);
+      if (this.cyclicClasses.contains(component.vertexSet().iterator().next())) {
+        dependencies.or(classes);
+      }
+      component2dependencies.put(component, dependencies);
+      for (int id = classes.nextSetBit(0); id >= 0; id = classes.nextSetBit(id + 1)) {
+        this.id2dependencies[id] = dependencies;
       }
-      this.dependencies.put(set.getKey(), dependencies);
     }
+
+    this.dependencies = new DependencyMap();
   }
 
+  // NB: the returned map (and its sets) cannot be modified
   public Map<OWLClass, Set<OWLClass>> getDependencies() {
+    if (this.dependencies == null) {
+      this.findDependencies();
+    }
     return this.dependencies;
   }
 
+  // checks whether abbreviation c (transitively) depends on abbreviation d
+  public boolean dependsOn(OWLClass c, OWLClass d) {
+    if (this.dependencies == null) {
+      this.findDependencies();
+    }
+    Integer cId = this.class2id.get(c);
+    Integer dId = this.class2id.get(d);
+    return cId != null && dId != null && this.id2dependencies[cId].get(dId);
+  }
+
+  // map view of the dependencies of all abbreviations
+  private class DependencyMap extends AbstractMap<OWLClass, Set<OWLClass>> {
+
+    @Override
+    public Set<OWLClass> get(Object c) {
+      Integer id = class2id.get(c);
+      return id != null ? new DependencySet(id2dependencies[id]) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object c) {
+      return class2id.containsKey(c);
+    }
+
+    @Override
+    public int size() {
+      return id2class.size();
+    }
+
+    @Override
+    public Set<Map.Entry<OWLClass, Set<OWLClass>>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public int size() {
+          return id2class.size();
+        }
+
+        @Override
+        public Iterator<Map.Entry<OWLClass, Set<OWLClass>>> iterator() {
+          return new Iterator<>() {
+            private int id = 0;
+
+            @Override
+            public boolean hasNext() {
+              return this.id < id2class.size();
+            }
+
+            @Override
+            public Map.Entry<OWLClass, Set<OWLClass>> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              OWLClass c = id2class.get(this.id);
+              Set<OWLClass> dependencies = new DependencySet(id2dependencies[this.id++]);
+              return new AbstractMap.SimpleImmutableEntry<>(c, dependencies);
+            }
+          };
+        }
+      };
+    }
+  }
+
+  // set view of a bit set of abbreviation ids
+  private class DependencySet extends AbstractSet<OWLClass> {
+
+    private final BitSet ids;
+
+    private DependencySet(BitSet ids) {
+      this.ids = ids;
+    }
+
+    @Override
+    public boolean contains(Object c) {
+      Integer id = class2id.get(c);
+      return id != null && this.ids.get(id);
+    }
+
+    @Override
+    public int size() {
+      return this.ids.cardinality();
+    }
+
+    @Override
+    public Iterator<OWLClass> iterator() {
+      return new Iterator<>() {
+        private int id = ids.nextSetBit(0);
+
+        @Override
+        public boolean hasNext() {
+          return this.id >= 0;
+        }
+
+        @Override
+        public OWLClass next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          OWLClass c = id2class.get(this.id);
+          this.id = ids.nextSetBit(this.id + 1);
+          return c;
+        }
+      };
+    }
+  }
+
   // this returns classes that depend on themselves
   // NB: this does not include classes that depend on cyclic classes
   public Set<OWLClass> cyclicClasses() {
-    Set<OWLClass> cyclic = new HashSet<>();
+    return this.cyclicClasses;
+  }
 
-    for (Map.Entry<OWLClass, Set<OWLClass>> set : this.dependencies.entrySet()) {
-      OWLClass abbreviation = set.getKey();
-      Set<OWLClass> dependencies = set.getValue();
-      if (dependencies.contains(abbreviation)) {
-        cyclic.add(abbreviation);
-      }
+  // this returns classes that depend on themselves or on cyclic classes,
+  // i.e., all classes from which a cyclic class can be reached in the dependency graph
+  public Set<OWLClass> getClassesWithCyclicDependencies() {
+    Set<OWLClass> classes = new HashSet<>();
+    if (this.cyclicClasses.isEmpty()) {
+      return classes;
     }
-    return cyclic;
+    // a single traversal (starting from all cyclic classes) against the direction of dependencies
+    Graph<OWLClass, DefaultEdge> dependents = new EdgeReversedGraph<>(this.dependencyGraph);
+    new BreadthFirstIterator<>(dependents, this.cyclicClasses).forEachRemaining(classes::add);
+    return classes;
   }
 }
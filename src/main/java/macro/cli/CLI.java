@@ -7,6 +7,8 @@ import java.util.logging.*;
 import java.util.logging.Logger;
 import java.util.stream.*;
 import macro.exp.*;
+import macro.minimization.general.*;
+import macro.ont.*;
 import macro.roundtrip.*;
 import org.jgrapht.*;
 import org.jgrapht.graph.*;
@@ -23,17 +25,67 @@ public class CLI {
 
   public static void main(String[] args) throws IOException, Exception {
 
+    // optional arguments
+    List<String> arguments = new ArrayList<>(Arrays.asList(args));
+    int threads = removeOption(arguments, "--threads", "\\d+", 1, "4");
+    int maxMacros = removeOption(arguments, "--max-macros", "\\d+", Integer.MAX_VALUE, "100");
+    int minGain = removeOption(arguments, "--min-gain", "-?\\d+", Integer.MIN_VALUE, "10");
+    boolean streaming = arguments.remove("--streaming");
+    List<String> importDirectories = removeOptions(arguments, "--imports");
+    List<String> cacheDirectories = removeOptions(arguments, "--cache");
+    List<String> formats = removeOptions(arguments, "--format");
+    boolean gzip = arguments.remove("--gzip");
+    args = arguments.toArray(new String[0]);
+
+    // imports are loaded in parallel (and cached) only if asked for
+    ImportsClosureLoader importsLoader = null;
+    if (!importDirectories.isEmpty() || !cacheDirectories.isEmpty()) {
+      List<File> directories = new ArrayList<>();
+      for (String d : importDirectories) {
+        directories.add(new File(d));
+      }
+      File cache = cacheDirectories.isEmpty() ? null : new File(cacheDirectories.get(0));
+      importsLoader = new ImportsClosureLoader(directories, cache, threads);
+    }
+
+    // format of written axioms
+    OutputFormat format = OutputFormat.OWL_XML;
+    if (!formats.isEmpty()) {
+      format = OutputFormat.fromName(formats.get(formats.size() - 1));
+      if (format == null) {
+        System.out.println(
+            "Please provide one of 'owlxml', 'functional', 'ntriples' for '--format'.");
+        System.exit(0);
+      }
+    }
+
     if (args.length < 3 || args.length > 4) {
       System.out.println(
           "Incorrect arguments. Required input: \n"
               + "\t 'solve 1 ontology output' (to get statistics on solutions of Problem 1-3)\n"
+              + "\t\t optionally '--threads N' (to macrofy axioms for Problem 1-2 in parallel)\n"
+              + "\t\t optionally '--streaming' (to macrofy axioms for Problem 3 one at a time)\n"
+              + "\t\t optionally '--max-macros N' (to introduce at most N macros for Problem 3)\n"
+              + "\t\t optionally '--min-gain G' "
+              + "(to only introduce macros for Problem 3 that save at least G symbols)\n"
               + "\t 'macrofy ontology output' (to macrofy an ontology)\n"
+              + "\t\t for 'solve', 'macrofy', and 'snapshot', optionally '--imports DIR' "
+              + "(to resolve imports against ontologies in DIR, in parallel with '--threads N')\n"
+              + "\t\t for 'solve', 'macrofy', and 'snapshot', optionally '--cache DIR' "
+              + "(to cache parsed imports in DIR)\n"
               + "\t 'expand macrofication definitions output' "
               + "(to expand a macrofication with fixed-point definitions)\n"
               + "\t 'fixedpoint definitions output' "
               + "(to expand a macro definitions to their fixed-point expansions)\n"
+              + "\t\t for 'macrofy', 'expand', and 'fixedpoint', optionally '--format F' "
+              + "(to write axioms in F, i.e., 'owlxml' (default), 'functional', or 'ntriples')\n"
+              + "\t\t for 'macrofy', 'expand', and 'fixedpoint', optionally '--gzip' "
+              + "(to compress written files)\n"
               + "\t 'compare ontology1 ontology2' "
-              + "(to check whether two ontologies contain the same class expression axioms)");
+              + "(to check whether two ontologies contain the same class expression axioms)\n"
+              + "\t 'snapshot ontology output' "
+              + "(to write a snapshot of an ontology that can be used in place of the ontology "
+              + "and loads faster)");
       System.exit(0);
     }
 
@@ -70,7 +122,14 @@ public class CLI {
         System.exit(0);
       }*/
 
-      solve(problem, ontFilePath, outputPath);
+      solve(
+          problem,
+          ontFilePath,
+          outputPath,
+          threads,
+          streaming,
+          new MacroSelection(maxMacros, minGain),
+          importsLoader);
       System.exit(0);
     }
 
@@ -84,7 +143,7 @@ public class CLI {
       String ontFilePath = args[1];
       String outputPath = args[2];
 
-      Macrofy.run(ontFilePath, outputPath);
+      Macrofy.run(ontFilePath, outputPath, importsLoader, format, gzip);
       System.exit(0);
     }
 
@@ -100,7 +159,7 @@ public class CLI {
       String definitionPath = args[2];
       String outputPath = args[3];
 
-      Expand.run(ontFilePath, definitionPath, outputPath);
+      Expand.run(ontFilePath, definitionPath, outputPath, format, gzip);
       System.exit(0);
     }
 
@@ -115,7 +174,7 @@ public class CLI {
       String definitionPath = args[1];
       String outputPath = args[2];
 
-      FixedPoint.run(definitionPath, outputPath);
+      FixedPoint.run(definitionPath, outputPath, format, gzip);
       System.exit(0);
     }
 
@@ -134,25 +193,79 @@ public class CLI {
       System.exit(0);
     }
 
+    if (command.equals("snapshot")) {
+
+      if (args.length != 3) {
+        System.out.println("Incorrect arguments. Required input for 'snapshot': ontology output");
+        System.exit(0);
+      }
+
+      String ontFilePath = args[1];
+      String outputPath = args[2];
+
+      Snapshot.run(ontFilePath, outputPath, importsLoader);
+      System.exit(0);
+    }
+
     System.out.println(
-        "Incorrect command. Allowed commands are: 'solve, macrofy, expand, compare'");
+        "Incorrect command. Allowed commands are: 'solve, macrofy, expand, compare, snapshot'");
+  }
+
+  // removes an optional argument with an integer value, e.g., '--threads 4', and returns its value
+  private static int removeOption(
+      List<String> arguments, String option, String pattern, int defaultValue, String example) {
+    int index = arguments.indexOf(option);
+    if (index == -1) {
+      return defaultValue;
+    }
+    if (index + 1 >= arguments.size() || !arguments.get(index + 1).matches(pattern)) {
+      System.out.println(
+          "Please provide a number for '" + option + "', e.g., '" + option + " " + example + "'.");
+      System.exit(0);
+    }
+    int value = Integer.parseInt(arguments.get(index + 1));
+    arguments.subList(index, index + 2).clear();
+    return value;
+  }
+
+  // removes all occurrences of an optional argument with a value, e.g., '--imports dir', and
+  // returns their values
+  private static List<String> removeOptions(List<String> arguments, String option) {
+    List<String> values = new ArrayList<>();
+    int index;
+    while ((index = arguments.indexOf(option)) != -1) {
+      if (index + 1 >= arguments.size()) {
+        System.out.println("Please provide a value for '" + option + "'.");
+        System.exit(0);
+      }
+      values.add(arguments.get(index + 1));
+      arguments.subList(index, index + 2).clear();
+    }
+    return values;
   }
 
-  private static void solve(String problem, String ontFilePath, String outputPath) {
+  private static void solve(
+      String problem,
+      String ontFilePath,
+      String outputPath,
+      int threads,
+      boolean streaming,
+      MacroSelection selection,
+      ImportsClosureLoader importsLoader) {
 
     if (problem.equals("1")) {
       System.out.println("Computing Size-Minimal Encoding for Problem 1");
-      Problem1.run(ontFilePath, outputPath);
+      Problem1.run(ontFilePath, outputPath, threads, importsLoader);
     }
 
     if (problem.equals("2")) {
       System.out.println("Computing Size-Minimal Encoding for Problem 2");
-      Problem2.run(ontFilePath, outputPath);
+      Problem2.run(ontFilePath, outputPath, threads, importsLoader);
     }
 
     if (problem.equals("3")) {
       System.out.println("Computing Size-Minimal Encoding for Problem 3");
-      Problem3.run(ontFilePath, outputPath);
+      Problem3.run(ontFilePath, outputPath, streaming, selection, importsLoader);
     }
   }
 }
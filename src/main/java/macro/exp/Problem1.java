@@ -44,16 +44,40 @@ public class Problem1 {
    * @param output the path to the output folder
    */
   public static void run(String ontFilePath, String output) {
+    run(ontFilePath, output, 1);
+  }
+
+  /**
+   * Runs the implementation for Problem 1.
+   *
+   * @param ontFilePath the path to the ontology file
+   * @param output the path to the output folder
+   * @param threads the number of threads used to macrofy axioms
+   */
+  public static void run(String ontFilePath, String output, int threads) {
+    run(ontFilePath, output, threads, null);
+  }
+
+  /**
+   * Runs the implementation for Problem 1.
+   *
+   * @param ontFilePath the path to the ontology file
+   * @param output the path to the output folder
+   * @param threads the number of threads used to macrofy axioms
+   * @param importsLoader the loader for the imports closure of the ontology (or null)
+   */
+  public static void run(
+      String ontFilePath, String output, int threads, ImportsClosureLoader importsLoader) {
 
     // load ontology
     File ontFile = new File(ontFilePath);
-    OntologyLoader ontLoader = new OntologyLoader(ontFile, true);
+    OntologyLoader ontLoader = new OntologyLoader(ontFile, importsLoader);
     OWLOntology ontology = ontLoader.getOntology();
 
     // minimize ontology (and measure processing time)
     long startTime = System.nanoTime();
 
-    RewritingSystem system = new RewritingSystem(ontology);
+    RewritingSystem system = new RewritingSystem(ontology, threads);
 
     long endTime = System.nanoTime();
     long duration = (endTime - startTime) / 1000000000; // divide by 1000000 to get milliseconds.
@@ -38,17 +38,26 @@ public class Problem2 {
   }
 
   public static void run(String ontFilePath, String output) {
+    run(ontFilePath, output, 1);
+  }
+
+  public static void run(String ontFilePath, String output, int threads) {
+    run(ontFilePath, output, threads, null);
+  }
+
+  public static void run(
+      String ontFilePath, String output, int threads, ImportsClosureLoader importsLoader) {
 
     // load ontology
     File ontFile = new File(ontFilePath);
-    OntologyLoader ontLoader = new OntologyLoader(ontFile, true);
+    OntologyLoader ontLoader = new OntologyLoader(ontFile, importsLoader);
     OWLOntology ontology = ontLoader.getOntology();
     String ontologyName = Paths.get(ontFilePath).getFileName().toString();
 
     long startTime = System.nanoTime();
 
     // Rewriting system for Problem 2
-    RewritingSystem system = new RewritingSystem(ontology);
+    RewritingSystem system = new RewritingSystem(ontology, threads);
     system.computeMinimalMacroDefinitions(); // construction of size-minimal macro definitions
 
     long endTime = System.nanoTime();
@@ -114,15 +123,15 @@ public class Problem2 {
     // (*) calculate size of macro definitions
     Map<OWLClass, OWLClassExpression> macro2minExpansion = system.getMinimialDefinitions();
     Map<OWLClass, OWLClassExpression> macro2oneStep = macroDefinitions.getClass2expansion();
-    SyntaxTreeBuilder builder = new SyntaxTreeBuilder();
+    SubtermDAG dag = system.getSubtermDAG();
     for (Map.Entry<OWLClass, OWLClassExpression> entry : macro2minExpansion.entrySet()) {
-      SyntaxTree minExpansion = builder.build(entry.getValue());
-      ontologyMacroDefinitionSize += minExpansion.getSize() + 2;
+      int minExpansionSize = dag.getSize(entry.getValue());
+      ontologyMacroDefinitionSize += minExpansionSize + 2;
 
       OWLClassExpression oneStep = macro2oneStep.get(entry.getKey());
-      SyntaxTree origExpansion = builder.build(oneStep);
+      int origExpansionSize = dag.getSize(oneStep);
 
-      if (origExpansion.getSize() > minExpansion.getSize()) {
+      if (origExpansionSize > minExpansionSize) {
         numberOfChangedAxioms++;
       }
     }
@@ -32,21 +32,63 @@ public class Problem3 {
   }
 
   public static void run(String ontFilePath, String output) {
+    run(ontFilePath, output, false);
+  }
+
+  /**
+   * Runs the implementation for Problem 3.
+   *
+   * @param ontFilePath the path to the ontology file
+   * @param output the path to the output folder
+   * @param streaming if true, axioms are macrofied (and measured) one at a time instead of keeping
+   *     the entire macrofication in memory
+   */
+  public static void run(String ontFilePath, String output, boolean streaming) {
+    run(ontFilePath, output, streaming, new MacroSelection());
+  }
+
+  /**
+   * Runs the implementation for Problem 3.
+   *
+   * @param ontFilePath the path to the ontology file
+   * @param output the path to the output folder
+   * @param streaming if true, axioms are macrofied (and measured) one at a time instead of keeping
+   *     the entire macrofication in memory
+   * @param selection the selection of terms for which macros are introduced (e.g., only the most
+   *     valuable ones)
+   */
+  public static void run(
+      String ontFilePath, String output, boolean streaming, MacroSelection selection) {
+    run(ontFilePath, output, streaming, selection, null);
+  }
+
+  /**
+   * Runs the implementation for Problem 3.
+   *
+   * @param ontFilePath the path to the ontology file
+   * @param output the path to the output folder
+   * @param streaming if true, axioms are macrofied (and measured) one at a time instead of keeping
+   *     the entire macrofication in memory
+   * @param selection the selection of terms for which macros are introduced (e.g., only the most
+   *     valuable ones)
+   * @param importsLoader the loader for the imports closure of the ontology (or null)
+   */
+  public static void run(
+      String ontFilePath,
+      String output,
+      boolean streaming,
+      MacroSelection selection,
+      ImportsClosureLoader importsLoader) {
 
     File ontFile = new File(ontFilePath);
-    OntologyLoader ontLoader = new OntologyLoader(ontFile, true);
+    OntologyLoader ontLoader = new OntologyLoader(ontFile, importsLoader);
     OWLOntology ont = ontLoader.getOntology();
 
     String ontologyName = Paths.get(ontFilePath).getFileName().toString();
 
-    long startTime = System.nanoTime();
+    TermSizeVisitor sizeVisitor = new TermSizeVisitor();
 
-    // Rewriting system for Problem 3
-    RewritingSystem system = new RewritingSystem(ont);
-
-    long endTime = System.nanoTime();
-    long duration = (endTime - startTime) / 1000000000; // divide by 1000000 to get milliseconds.
-    System.out.println("Minimization Time: " + duration + " seconds");
+    long startTime = System.nanoTime();
 
     // The set of 'AxiomMacrofications' corresponds to the set of (all) axioms of the input
     // ontology.
@@ -59,146 +101,50 @@ public class Problem3 {
     // - the 'macrofication' as defined in the paper as the part of an ontology that are not macro
     // definitions
     // - the macro definitions
-    Set<AxiomMacrofication> macrofication = system.getMacrofication();
-    MacroDefinitions macroDefinitions = system.getMacroDefinitions();
+    Set<AxiomMacrofication> macrofication = null;
+    MacroDefinitions macroDefinitions;
+    Measurements measurements;
+    if (streaming) {
+      // Rewriting system for Problem 3 (that does not keep the macrofication in memory)
+      StreamingRewritingSystem system = new StreamingRewritingSystem(ont, selection);
+      macroDefinitions = system.getMacroDefinitions();
+      measurements = new Measurements(system.getSubtermDAG(), sizeVisitor);
+      // NB: AxiomMacrofications are measured while they are computed
+      // (so this is included in the minimization time)
+      system.macrofy(measurements::add);
+    } else {
+      // Rewriting system for Problem 3
+      RewritingSystem system = new RewritingSystem(ont, selection);
+      macrofication = system.getMacrofication();
+      macroDefinitions = system.getMacroDefinitions();
+      // sizes of expressions of the input ontology have already been computed by the rewriting
+      // system
+      measurements = new Measurements(system.getSubtermDAG(), sizeVisitor);
+    }
 
-    // we map each class expression to its original size
-    // as well as its size in the macrofication
-    Map<OWLClassExpression, Integer> origExpression2size = new HashMap<>();
-    Map<OWLClassExpression, Integer> minExpression2size = new HashMap<>();
+    long endTime = System.nanoTime();
+    long duration = (endTime - startTime) / 1000000000; // divide by 1000000 to get milliseconds.
+    System.out.println("Minimization Time: " + duration + " seconds");
+
+    if (macrofication != null) {
+      for (AxiomMacrofication mac : macrofication) {
+        measurements.add(mac);
+      }
+    }
 
     SyntaxTreeBuilder builder = new SyntaxTreeBuilder();
     SyntaxTreeUtil synUtil = new SyntaxTreeUtil();
+    SubtermDAG dag = measurements.dag;
 
-    int ontologySize = 0;
-    int minimizedOntologySize = 0;
-    int macroficationSize = 0;
+    int ontologySize = measurements.ontologySize;
+    int minimizedOntologySize = measurements.minimizedOntologySize;
     int sizeOfDefinitions = 0;
-    int changedAxioms = 0;
+    int changedAxioms = measurements.changedAxioms;
     int numberOfDefinitions = 0;
 
     int numberOfExpressions = 0;
-    int numberOfChangedExpressions = 0;
-
-    for (AxiomMacrofication mac : macrofication) {
-
-      int origAxiomSize = mac.getAxiomTree().getSize();
-      int minAxiomSize = mac.getMinimizationTree().getSize();
-
-      ontologySize += origAxiomSize;
-      minimizedOntologySize += minAxiomSize;
-      if (origAxiomSize - minAxiomSize > 0) {
-        changedAxioms++;
-      }
-
-      OWLAxiom origAxiom = mac.getAxiom();
-      OWLAxiom minAxiom = mac.getMinimizedAxiom();
-
-      // measure the size of all top level class expression
-      // that occur in the ontology and the size-minimal macrofication
-
-      // (1) Subclass Axioms
-      if (origAxiom instanceof OWLSubClassOfAxiom) {
-        OWLSubClassOfAxiom subclassof = (OWLSubClassOfAxiom) origAxiom;
-        OWLClassExpression sub = subclassof.getSubClass();
-        OWLClassExpression sup = subclassof.getSuperClass();
-
-        SyntaxTree subTree = builder.build(sub);
-        SyntaxTree supTree = builder.build(sup);
-
-        int subTreeSize = subTree.getSize();
-        int supTreeSize = supTree.getSize();
-
-        origExpression2size.putIfAbsent(sub, subTreeSize);
-        origExpression2size.putIfAbsent(sup, supTreeSize);
-      }
-
-      if (minAxiom instanceof OWLSubClassOfAxiom) {
-        OWLSubClassOfAxiom subclassof = (OWLSubClassOfAxiom) minAxiom;
-        OWLClassExpression sub = subclassof.getSubClass();
-        OWLClassExpression sup = subclassof.getSuperClass();
-
-        SyntaxTree subTree = builder.build(sub);
-        SyntaxTree supTree = builder.build(sup);
-
-        int subTreeSize = subTree.getSize();
-        int supTreeSize = supTree.getSize();
-
-        minExpression2size.putIfAbsent(sub, subTreeSize);
-        minExpression2size.putIfAbsent(sup, supTreeSize);
-      }
-
-      // (2) EquivalentClasses Axioms
-      if (origAxiom instanceof OWLEquivalentClassesAxiom) {
-        OWLEquivalentClassesAxiom equivalent = (OWLEquivalentClassesAxiom) origAxiom;
-        Set<OWLClassExpression> exprs = equivalent.getClassExpressions();
-
-        for (OWLClassExpression e : exprs) {
-          SyntaxTree tree = builder.build(e);
-          int eSize = tree.getSize();
-          origExpression2size.putIfAbsent(e, eSize);
-        }
-      }
-
-      if (minAxiom instanceof OWLEquivalentClassesAxiom) {
-        OWLEquivalentClassesAxiom equivalent = (OWLEquivalentClassesAxiom) minAxiom;
-        Set<OWLClassExpression> exprs = equivalent.getClassExpressions();
-
-        for (OWLClassExpression e : exprs) {
-          SyntaxTree tree = builder.build(e);
-          int eSize = tree.getSize();
-          minExpression2size.putIfAbsent(e, eSize);
-        }
-      }
-
-      // (3) DisjointClasses Axioms
-      if (origAxiom instanceof OWLDisjointClassesAxiom) {
-        OWLDisjointClassesAxiom disjoint = (OWLDisjointClassesAxiom) origAxiom;
-        Set<OWLClassExpression> exprs = disjoint.getClassExpressions();
-
-        for (OWLClassExpression e : exprs) {
-          SyntaxTree tree = builder.build(e);
-          int eSize = tree.getSize();
-          origExpression2size.putIfAbsent(e, eSize);
-        }
-      }
-
-      if (minAxiom instanceof OWLDisjointClassesAxiom) {
-        OWLDisjointClassesAxiom disjoint = (OWLDisjointClassesAxiom) minAxiom;
-        Set<OWLClassExpression> exprs = disjoint.getClassExpressions();
-
-        for (OWLClassExpression e : exprs) {
-          SyntaxTree tree = builder.build(e);
-          int eSize = tree.getSize();
-          minExpression2size.putIfAbsent(e, eSize);
-        }
-      }
-
-      // (4) DisjointUnion Axioms
-      if (origAxiom instanceof OWLDisjointUnionAxiom) {
-        OWLDisjointUnionAxiom disjointUnion = (OWLDisjointUnionAxiom) origAxiom;
-        OWLClassExpression union = disjointUnion.getOWLClass(); // don't need this - this is a class
-        Set<OWLClassExpression> exprs = disjointUnion.getClassExpressions();
-
-        for (OWLClassExpression e : exprs) {
-          SyntaxTree tree = builder.build(e);
-          int eSize = tree.getSize();
-          origExpression2size.putIfAbsent(e, eSize);
-        }
-      }
-
-      if (minAxiom instanceof OWLDisjointUnionAxiom) {
-        OWLDisjointUnionAxiom disjointUnion = (OWLDisjointUnionAxiom) minAxiom;
-        OWLClassExpression union = disjointUnion.getOWLClass(); // don't need this - this is a class
-        Set<OWLClassExpression> exprs = disjointUnion.getClassExpressions();
-
-        for (OWLClassExpression e : exprs) {
-          SyntaxTree tree = builder.build(e);
-          int eSize = tree.getSize();
-          minExpression2size.putIfAbsent(e, eSize);
-        }
-      }
-    }
+    Map<OWLClassExpression, Integer> origExpression2size = measurements.origExpression2size;
+    Map<OWLClassExpression, Integer> minExpression2size = measurements.minExpression2size;
 
     numberOfExpressions = origExpression2size.size();
     int cumulativeExpressionSize = 0;
@@ -216,8 +162,7 @@ public class Problem3 {
 
     numberOfDefinitions = macro2expansion.size();
     for (OWLClassExpression exp : macro2expansion.values()) {
-      SyntaxTree tree = builder.build(exp);
-      sizeOfDefinitions += tree.getSize(); // size of the expansion
+      sizeOfDefinitions += dag.getSize(exp); // size of the expansion
       sizeOfDefinitions += 1; // newly introduced macro symbol
     }
     double practicalReduction =
@@ -238,7 +183,7 @@ public class Problem3 {
             + df.format(practicalReduction)
             + ","
             // every axiom in the ontology is represented by an AxiomMacrofication
-            + macrofication.size()
+            + measurements.numberOfAxioms
             + ","
             + changedAxioms
             + ","
@@ -254,17 +199,11 @@ public class Problem3 {
     IOHelper.writeAppend(duration + " (s)", outputPath + "/runningTime.csv");
 
     // construction of table 2
-    Map<OWLClassExpression, Integer> originalExpression2size = new HashMap<>();
-    Map<OWLClassExpression, Integer> minimizedExpression2size = new HashMap<>();
+    Map<OWLClassExpression, Integer> originalExpression2size = measurements.originalExpression2size;
+    Map<OWLClassExpression, Integer> minimizedExpression2size =
+        measurements.minimizedExpression2size;
     Map<OWLClassExpression, OWLClassExpression> macro2evaluation =
         macroDefinitions.getMacro2Evaluation();
-    for (AxiomMacrofication m : macrofication) {
-      OWLAxiom axiom = m.getAxiom();
-      OWLAxiom minimized = m.getMinimizedAxiom();
-
-      getExpression2size(axiom, originalExpression2size, builder);
-      getExpression2size(minimized, minimizedExpression2size, builder);
-    }
 
     Set<OWLClassExpression> size2orLarger = new HashSet<>();
     Set<OWLClassExpression> size5orLarger = new HashSet<>();
@@ -288,17 +227,17 @@ public class Problem3 {
       int minSize = minimizedExpression2size.get(minimized);
       minimizedExpressionSize += minSize;
 
-      // get term tree for minimized term ...
-      SyntaxTree miniTree = builder.build(minimized);
-      Set<OWLClass> namedClasses = minimized.getClassesInSignature();
-      for (OWLClass c : namedClasses) {
-        if (macro2evaluation.containsKey(c)) {
-          // ... exhaustively expand macros ...
-          rewriter.rewrite(miniTree, c, macro2evaluation.get(c));
-        }
+      // terms of the input ontology do not contain macros
+      // (so only terms that have been rewritten need to be expanded)
+      OWLClassExpression exp = minimized;
+      if (dag.getOccurrence(minimized) == 0) {
+        // get term tree for minimized term ...
+        SyntaxTree miniTree = builder.build(minimized);
+        // ... exhaustively expand macros ...
+        rewriter.expandAll(miniTree, macro2evaluation);
+        // ... get term from (rewritten) tree
+        exp = synUtil.getExpressionFromTree(miniTree);
       }
-      // ... get term from (rewritten) tree
-      OWLClassExpression exp = synUtil.getExpressionFromTree(miniTree);
 
       int origSize = originalExpression2size.get(exp);
       expressionSize += origSize;
@@ -368,18 +307,15 @@ public class Problem3 {
   }
 
   public static void getExpression2size(
-      OWLAxiom axiom, Map<OWLClassExpression, Integer> expression2size, SyntaxTreeBuilder builder) {
+      OWLAxiom axiom, Map<OWLClassExpression, Integer> expression2size, TermSizeVisitor sizes) {
 
     if (axiom instanceof OWLSubClassOfAxiom) {
       OWLSubClassOfAxiom subclassof = (OWLSubClassOfAxiom) axiom;
       OWLClassExpression sub = subclassof.getSubClass();
       OWLClassExpression sup = subclassof.getSuperClass();
 
-      SyntaxTree subTree = builder.build(sub);
-      SyntaxTree supTree = builder.build(sup);
-
-      int subTreeSize = subTree.getSize();
-      int supTreeSize = supTree.getSize();
+      int subTreeSize = sizes.getSize(sub);
+      int supTreeSize = sizes.getSize(sup);
 
       expression2size.putIfAbsent(sub, subTreeSize);
       expression2size.putIfAbsent(sup, supTreeSize);
@@ -390,8 +326,7 @@ public class Problem3 {
       Set<OWLClassExpression> exprs = equivalent.getClassExpressions();
 
       for (OWLClassExpression e : exprs) {
-        SyntaxTree tree = builder.build(e);
-        int eSize = tree.getSize();
+        int eSize = sizes.getSize(e);
         expression2size.putIfAbsent(e, eSize);
       }
     }
@@ -401,8 +336,7 @@ public class Problem3 {
       Set<OWLClassExpression> exprs = disjoint.getClassExpressions();
 
       for (OWLClassExpression e : exprs) {
-        SyntaxTree tree = builder.build(e);
-        int eSize = tree.getSize();
+        int eSize = sizes.getSize(e);
         expression2size.putIfAbsent(e, eSize);
       }
     }
@@ -413,10 +347,147 @@ public class Problem3 {
       Set<OWLClassExpression> exprs = disjointUnion.getClassExpressions();
 
       for (OWLClassExpression e : exprs) {
-        SyntaxTree tree = builder.build(e);
-        int eSize = tree.getSize();
+        int eSize = sizes.getSize(e);
         expression2size.putIfAbsent(e, eSize);
       }
     }
   }
+
+  // measurements of a macrofication (collected axiom by axiom)
+  private static class Measurements {
+
+    private SubtermDAG dag;
+    private TermSizeVisitor sizeVisitor;
+
+    private int numberOfAxioms = 0;
+    private int ontologySize = 0;
+    private int minimizedOntologySize = 0;
+    private int changedAxioms = 0;
+
+    // we map each class expression to its original size
+    // as well as its size in the macrofication
+    private Map<OWLClassExpression, Integer> origExpression2size = new HashMap<>();
+    private Map<OWLClassExpression, Integer> minExpression2size = new HashMap<>();
+
+    // (for table 2)
+    private Map<OWLClassExpression, Integer> originalExpression2size = new HashMap<>();
+    private Map<OWLClassExpression, Integer> minimizedExpression2size = new HashMap<>();
+
+    private Measurements(SubtermDAG dag, TermSizeVisitor sizeVisitor) {
+      this.dag = dag;
+      this.sizeVisitor = sizeVisitor;
+    }
+
+    private void add(AxiomMacrofication mac) {
+      this.numberOfAxioms++;
+
+      int origAxiomSize = mac.getAxiomTree().getSize();
+      int minAxiomSize = mac.getMinimizationTree().getSize();
+
+      this.ontologySize += origAxiomSize;
+      this.minimizedOntologySize += minAxiomSize;
+      if (origAxiomSize - minAxiomSize > 0) {
+        this.changedAxioms++;
+      }
+
+      OWLAxiom origAxiom = mac.getAxiom();
+      OWLAxiom minAxiom = mac.getMinimizedAxiom();
+
+      // measure the size of all top level class expression
+      // that occur in the ontology and the size-minimal macrofication
+
+      // (1) Subclass Axioms
+      if (origAxiom instanceof OWLSubClassOfAxiom) {
+        OWLSubClassOfAxiom subclassof = (OWLSubClassOfAxiom) origAxiom;
+        OWLClassExpression sub = subclassof.getSubClass();
+        OWLClassExpression sup = subclassof.getSuperClass();
+
+        int subTreeSize = this.dag.getSize(sub);
+        int supTreeSize = this.dag.getSize(sup);
+
+        this.origExpression2size.putIfAbsent(sub, subTreeSize);
+        this.origExpression2size.putIfAbsent(sup, supTreeSize);
+      }
+
+      if (minAxiom instanceof OWLSubClassOfAxiom) {
+        OWLSubClassOfAxiom subclassof = (OWLSubClassOfAxiom) minAxiom;
+        OWLClassExpression sub = subclassof.getSubClass();
+        OWLClassExpression sup = subclassof.getSuperClass();
+
+        int subTreeSize = this.dag.getSize(sub);
+        int supTreeSize = this.dag.getSize(sup);
+
+        this.minExpression2size.putIfAbsent(sub, subTreeSize);
+        this.minExpression2size.putIfAbsent(sup, supTreeSize);
+      }
+
+      // (2) EquivalentClasses Axioms
+      if (origAxiom instanceof OWLEquivalentClassesAxiom) {
+        OWLEquivalentClassesAxiom equivalent = (OWLEquivalentClassesAxiom) origAxiom;
+        Set<OWLClassExpression> exprs = equivalent.getClassExpressions();
+
+        for (OWLClassExpression e : exprs) {
+          int eSize = this.dag.getSize(e);
+          this.origExpression2size.putIfAbsent(e, eSize);
+        }
+      }
+
+      if (minAxiom instanceof OWLEquivalentClassesAxiom) {
+        OWLEquivalentClassesAxiom equivalent = (OWLEquivalentClassesAxiom) minAxiom;
+        Set<OWLClassExpression> exprs = equivalent.getClassExpressions();
+
+        for (OWLClassExpression e : exprs) {
+          int eSize = this.dag.getSize(e);
+          this.minExpression2size.putIfAbsent(e, eSize);
+        }
+      }
+
+      // (3) DisjointClasses Axioms
+      if (origAxiom instanceof OWLDisjointClassesAxiom) {
+        OWLDisjointClassesAxiom disjoint = (OWLDisjointClassesAxiom) origAxiom;
+        Set<OWLClassExpression> exprs = disjoint.getClassExpressions();
+
+        for (OWLClassExpression e : exprs) {
+          int eSize = this.dag.getSize(e);
+          this.origExpression2size.putIfAbsent(e, eSize);
+        }
+      }
+
+      if (minAxiom instanceof OWLDisjointClassesAxiom) {
+        OWLDisjointClassesAxiom disjoint = (OWLDisjointClassesAxiom) minAxiom;
+        Set<OWLClassExpression> exprs = disjoint.getClassExpressions();
+
+        for (OWLClassExpression e : exprs) {
+          int eSize = this.dag.getSize(e);
+          this.minExpression2size.putIfAbsent(e, eSize);
+        }
+      }
+
+      // (4) DisjointUnion Axioms
+      if (origAxiom instanceof OWLDisjointUnionAxiom) {
+        OWLDisjointUnionAxiom disjointUnion = (OWLDisjointUnionAxiom) origAxiom;
+        OWLClassExpression union = disjointUnion.getOWLClass(); // don't need this - this is a class
+        Set<OWLClassExpression> exprs = disjointUnion.getClassExpressions();
+
+        for (OWLClassExpression e : exprs) {
+          int eSize = this.dag.getSize(e);
+          this.origExpression2size.putIfAbsent(e, eSize);
+        }
+      }
+
+      if (minAxiom instanceof OWLDisjointUnionAxiom) {
+        OWLDisjointUnionAxiom disjointUnion = (OWLDisjointUnionAxiom) minAxiom;
+        OWLClassExpression union = disjointUnion.getOWLClass(); // don't need this - this is a class
+        Set<OWLClassExpression> exprs = disjointUnion.getClassExpressions();
+
+        for (OWLClassExpression e : exprs) {
+          int eSize = this.dag.getSize(e);
+          this.minExpression2size.putIfAbsent(e, eSize);
+        }
+      }
+
+      getExpression2size(mac.getAxiom(), this.originalExpression2size, this.sizeVisitor);
+      getExpression2size(mac.getMinimizedAxiom(), this.minimizedExpression2size, this.sizeVisitor);
+    }
+  }
 }
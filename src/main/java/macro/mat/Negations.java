@@ -28,7 +28,7 @@ public class Negations {
     String output = args[1];
 
     File ontFile = new File(ontFilePath);
-    OntologyLoader ontLoader = new OntologyLoader(ontFile, true);
+    OntologyLoader ontLoader = new OntologyLoader(ontFile, true, false);
     OWLOntology ont = ontLoader.getOntology();
 
     String ontologyName = Paths.get(ontFilePath).getFileName().toString();
@@ -42,7 +42,6 @@ public class MacroDefinitions {
   private Map<OWLClass, Set<OWLClassExpression>> ambiguousClasses;
   private Map<OWLClass, Set<OWLClassExpression>> cyclicClasses;
   private Map<OWLClass, Set<OWLClass>> class2directDependency;
-  private Map<OWLClass, Set<OWLClass>> class2dependency;
 
   private Map<OWLClass, OWLClassExpression>
       class2expansion; // does not include ambiguous and cyclic classes
@@ -55,11 +54,9 @@ public class MacroDefinitions {
   private ExplicitDefinitionFinder finder;
 
   private OWLRewriter rewriter;
-  private SyntaxTreeUtil synTreeUtil;
   private SyntaxTreeBuilder treeBuilder;
 
   public MacroDefinitions(OWLOntology o) {
-    this.synTreeUtil = new SyntaxTreeUtil();
     this.rewriter = new OWLRewriter();
     this.treeBuilder = new SyntaxTreeBuilder();
 
@@ -94,8 +91,9 @@ public class MacroDefinitions {
     return this.class2evaluation;
   }
 
+  // NB: dependencies are only computed on demand
   public Map<OWLClass, Set<OWLClass>> getDependencies() {
-    return this.class2dependency;
+    return this.dependencyFinder.getDependencies();
   }
 
   public Set<OWLClass> getMacroSymbols() {
@@ -126,22 +124,11 @@ public class MacroDefinitions {
     // if there exists an axiom EquivalentClasses(N,C), where C is a complex class  ,
     // and N' occurs in C
     this.class2directDependency = this.dependencyFinder.getDirectDependencies();
-    this.class2dependency = this.dependencyFinder.getDependencies();
-
-    // get classes that are involved in a cycle
-    Set<OWLClass> classesWithCyclicDefinition = this.dependencyFinder.cyclicClasses();
 
     // get classes with an expansion that includes cylces
-    Set<OWLClass> classesWithCyclicDependencies = new HashSet<>();
-    for (Map.Entry<OWLClass, Set<OWLClass>> set : class2dependency.entrySet()) {
-      OWLClass namedClass = set.getKey();
-      Set<OWLClass> dependencies = set.getValue();
-      for (OWLClass d : dependencies) {
-        if (classesWithCyclicDefinition.contains(d)) {
-          classesWithCyclicDependencies.add(namedClass);
-        }
-      }
-    }
+    // (this includes classes that are involved in a cycle)
+    Set<OWLClass> classesWithCyclicDependencies =
+        this.dependencyFinder.getClassesWithCyclicDependencies();
 
     // initialse (a) cyclic classes, (b) ambiguous classes,
     // and (c) macro definitions in terms of a map from named classes to their equivalent class
@@ -171,10 +158,18 @@ public class MacroDefinitions {
 
   private void initEvaluations() {
 
+    // evaluations are computed once (in reverse topological order of the dependency graph)
+    // and reused for all macros that depend on them
+    Map<OWLClass, OWLClassExpression> evaluations = new HashMap<>();
+    for (OWLClass c : getMacrosInDependencyOrder()) {
+      evaluations.put(c, getEvaluation(c, evaluations));
+    }
+
+    // NB: the iteration order of class2evaluation determines which macro is chosen for
+    // evaluations of different macros (see below). So, it is filled in the order of macros
     this.class2evaluation = new HashMap<>();
     for (OWLClass c : this.class2expansion.keySet()) {
-      OWLClassExpression evaluation = getEvaluation(c);
-      this.class2evaluation.put(c, evaluation);
+      this.class2evaluation.put(c, evaluations.get(c));
     }
 
     for (Map.Entry<OWLClass, OWLClassExpression> set : this.class2evaluation.entrySet()) {
@@ -187,31 +182,46 @@ public class MacroDefinitions {
   }
 
   // given a macro symbol (a named class), compute its evaluation (its fixed-point expansion)
-  private OWLClassExpression getEvaluation(OWLClass c) {
-    OWLClassExpression expansion = this.class2expansion.get(c);
-    Set<OWLClass> currentDependencies = new HashSet<>();
-    Set<OWLClass> nextDependencies = new HashSet<>();
-    if (this.class2directDependency.containsKey(c)) {
-      currentDependencies.addAll(this.class2directDependency.get(c));
-    }
-    SyntaxTree tree = this.treeBuilder.build(expansion);
+  // by replacing the macros in its expansion with their evaluations
+  // (NB: the evaluations of all macros the given macro depends on need to be computed already)
+  private OWLClassExpression getEvaluation(
+      OWLClass c, Map<OWLClass, OWLClassExpression> evaluations) {
+    SyntaxTree tree = this.treeBuilder.build(this.class2expansion.get(c));
+    // inserted evaluations are not rewritten again (they do not contain macros anymore)
+    this.rewriter.expandAll(tree, evaluations);
+    return (OWLClassExpression) tree.getRoot().getObject();
+  }
 
-    // traversal through the dependency tree
-    while (!currentDependencies.isEmpty()) {
-      for (OWLClass dependency : currentDependencies) {
-        if (this.class2directDependency.containsKey(dependency)) {
-          nextDependencies.addAll(this.class2directDependency.get(dependency));
-        }
-        if (dependency != null && this.class2expansion.get(dependency) != null) {
-          this.rewriter.rewrite(tree, dependency, this.class2expansion.get(dependency));
+  // returns all macros such that each macro comes after all macros it depends on
+  // (a depth-first traversal of the dependency graph with an explicit stack,
+  // collecting macros in post-order)
+  private List<OWLClass> getMacrosInDependencyOrder() {
+    List<OWLClass> order = new ArrayList<>();
+    Set<OWLClass> visited = new HashSet<>();
+    Set<OWLClass> done = new HashSet<>();
+    Deque<OWLClass> stack = new ArrayDeque<>();
+    for (OWLClass macro : this.class2expansion.keySet()) {
+      stack.push(macro);
+      while (!stack.isEmpty()) {
+        OWLClass c = stack.peek();
+        if (done.contains(c)) {
+          stack.pop();
+        } else if (visited.add(c)) {
+          // NB: macros do not depend on cyclic classes, so dependencies that have been visited
+          // but are not done yet cannot occur
+          for (OWLClass d : this.class2directDependency.getOrDefault(c, Collections.emptySet())) {
+            if (this.class2expansion.containsKey(d) && !visited.contains(d)) {
+              stack.push(d);
+            }
+          }
+        } else {
+          stack.pop();
+          done.add(c);
+          order.add(c);
         }
       }
-      currentDependencies.clear();
-      currentDependencies.addAll(nextDependencies);
-      nextDependencies.clear();
     }
-
-    return (OWLClassExpression) tree.getRoot().getObject();
+    return order;
   }
 
   public void initialiseNonAmbiguousNonCyclicDefinitions() {
@@ -231,33 +241,15 @@ public class MacroDefinitions {
 
   // replace complex class expressions with macro symbols in macro definitions (Problem 2)
   public void computeMinimalMacroDefinitions() {
+    // replace subterms top-down, i.e., from largest to smallest
+    OWLContractor contractor = new OWLContractor(this.evaluation2class);
 
     for (Map.Entry<OWLClass, OWLClassExpression> set : class2evaluation.entrySet()) {
       OWLClass macro = set.getKey();
       OWLClassExpression evaluation = set.getValue();
 
-      // initialise term tree that will be rewritten
-      SyntaxTree minimized = this.treeBuilder.build(evaluation);
-
-      // sort subterms in descending order by their size
-      TreeMap<Integer, Set<OWLClassExpression>> size2subterms =
-          this.synTreeUtil.size2subExpressions(evaluation);
-
-      // iterate over terms from largest to smallest
-      for (Map.Entry<Integer, Set<OWLClassExpression>> entry : size2subterms.entrySet()) {
-        int size = entry.getKey();
-        if (size > 1) { // skip atomic symbols and binary things
-          Set<OWLClassExpression> independent = entry.getValue();
-          // terms with the same size are independent and can be traversed in any order
-          for (OWLClassExpression i : independent) {
-            if (evaluation2class.containsKey(i)) {
-              this.rewriter.rewrite(minimized, i, evaluation2class.get(i));
-            }
-          }
-        }
-      }
-
-      OWLClassExpression minExpression = this.synTreeUtil.getExpressionFromTree(minimized);
+      // the evaluation itself is not contracted (it would be replaced by a macro symbol)
+      OWLClassExpression minExpression = contractor.contractSubterms(evaluation);
 
       this.class2minimizedExpansion.put(macro, minExpression);
     }
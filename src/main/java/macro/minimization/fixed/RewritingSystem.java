@@ -3,6 +3,7 @@ package macro.minimization.fixed;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.*;
 import macro.abbr.*;
 import macro.abbr.explicit.*;
@@ -54,21 +55,42 @@ public class RewritingSystem {
 
   private OWLRewriter rewriter;
   private SyntaxTreeBuilder treeBuilder;
-  private SyntaxTreeUtil synTreeUtil;
+  // sizes and occurrences of the class expressions of all axioms (including definitions)
+  // (terms that are not in the DAG, e.g., minimized expansions, are measured on demand)
+  private SubtermDAG subtermDAG;
+
+  // class expression axioms (indexed by the classes they contain)
+  private AxiomIndex axiomIndex;
+  // ids of axioms that contain macro symbols (other axioms do not need to be expanded)
+  private BitSet axiomsWithMacros;
 
   // macro symbols mapped to their minimized expansions (for Problem 2)
   private Map<OWLClass, OWLClassExpression> macro2minExpansion;
 
+  // number of threads used to macrofy axioms (axioms are macrofied sequentially if this is 1)
+  private int threads;
+
   /**
    * Constructor for the rewriting system.
    *
    * @param o the ontology to be minimized
    */
   public RewritingSystem(OWLOntology o) {
+    this(o, 1);
+  }
+
+  /**
+   * Constructor for the rewriting system.
+   *
+   * @param o the ontology to be minimized
+   * @param threads the number of threads used to macrofy axioms
+   */
+  public RewritingSystem(OWLOntology o, int threads) {
     this.ontology = o;
+    this.threads = Math.max(1, threads);
     this.rewriter = new OWLRewriter();
     this.treeBuilder = new SyntaxTreeBuilder();
-    this.synTreeUtil = new SyntaxTreeUtil();
+    this.subtermDAG = new SubtermDAG();
 
     this.initialiseMacroDefinitions();
     this.computeMinimalMacrofication();
@@ -94,6 +116,10 @@ public class RewritingSystem {
     return this.macrofication;
   }
 
+  public SubtermDAG getSubtermDAG() {
+    return this.subtermDAG;
+  }
+
   public Map<OWLClass, OWLClassExpression> getMinimialDefinitions() {
     return this.macro2minExpansion;
   }
@@ -108,36 +134,17 @@ public class RewritingSystem {
     this.macro2minExpansion = new HashMap<>();
     // get macro 2 evaluation <- get subterms <- replace things
 
+    // replace subterms top-down, i.e., from largest to smallest
+    OWLContractor contractor = new OWLContractor(this.evaluation2macro);
+
     // iterate over all macro definitions
     for (Map.Entry<OWLClass, OWLClassExpression> set : macro2evaluation.entrySet()) {
-      OWLClassExpression macro = set.getKey();
+      OWLClass macro = set.getKey();
       OWLClassExpression evaluation = set.getValue();
 
-      // build a term tree that will be rewritten into the minimal term
-      SyntaxTree minimized = this.treeBuilder.build(evaluation);
-
-      // order subterms in the macro evaluation, i.e., fixed-point evaluation by size ...
-      TreeMap<Integer, Set<OWLClassExpression>> size2subterms =
-          this.synTreeUtil.size2subExpressions(evaluation);
-
-      // ... iterate over all subterms in descending order (by using a TreeMap)
-      for (Map.Entry<Integer, Set<OWLClassExpression>> entry : size2subterms.entrySet()) {
-        int size = entry.getKey();
-        if (size > 1) { // skip constant symbols
-          // terms of the same size are necessarily independent
-          Set<OWLClassExpression> independent = entry.getValue();
-          // macrofy
-          for (OWLClassExpression i : independent) {
-            if (evaluation2macro.containsKey(i)) {
-              OWLRewriter rewriter = new OWLRewriter(minimized, i, evaluation2macro.get(i));
-            }
-          }
-        }
-      }
-
-      // convert tree to term
-      OWLClassExpression minExpression = this.synTreeUtil.getExpressionFromTree(minimized);
-      this.macro2minExpansion.put((OWLClass) macro, minExpression);
+      // the evaluation itself is not contracted (it would be replaced by a macro symbol)
+      OWLClassExpression minExpression = contractor.contractSubterms(evaluation);
+      this.macro2minExpansion.put(macro, minExpression);
     }
   }
 
@@ -162,28 +169,73 @@ public class RewritingSystem {
     Set<OWLAxiom> definitions = this.macroDefinitions.getDefinitionAxioms();
 
     Set<OWLAxiom> axioms = getClassExpressionAxioms(this.ontology);
+    this.axiomIndex = new AxiomIndex();
     for (OWLAxiom a : axioms) {
+      this.axiomIndex.add(a);
+      this.subtermDAG.add(a);
+    }
+    this.axiomsWithMacros = this.axiomIndex.getAxiomIdsWithClasses(macros);
 
-      OWLAxiom axiom = a.getAxiomWithoutAnnotations();
-      SyntaxTree tree = this.treeBuilder.build(axiom);
-
-      // initialise macrofication data structure
-      AxiomMacrofication axiomMacrofication = new AxiomMacrofication(tree);
-      this.macrofication.add(axiomMacrofication);
+    if (this.threads > 1) {
+      this.macrofication.addAll(this.macrofyInParallel(axioms));
+      return;
+    }
+    for (OWLAxiom a : axioms) {
+      this.macrofication.add(this.macrofy(a, this.treeBuilder, this.rewriter));
+    }
+  }
 
-      // fully expand all macro symbols
-      SyntaxTree expandedAxiom = expandMacros(a);
-      axiomMacrofication.setExpansion(expandedAxiom);
+  // the macrofication of an axiom only depends on the (read-only) look up tables for macros.
+  // So, axioms can be macrofied independently -- but OWLRewriter is not thread-safe, so each
+  // thread uses its own instance (SyntaxTreeBuilder is stateless and can be shared)
+  private List<AxiomMacrofication> macrofyInParallel(Set<OWLAxiom> axioms) {
+    ThreadLocal<OWLRewriter> rewriters = ThreadLocal.withInitial(OWLRewriter::new);
 
-      // get the fully expanded axiom
-      OWLAxiom unfolded = axiomMacrofication.getExpandedAxiom();
+    List<Callable<AxiomMacrofication>> tasks = new ArrayList<>();
+    for (OWLAxiom a : axioms) {
+      tasks.add(() -> this.macrofy(a, this.treeBuilder, rewriters.get()));
+    }
 
-      // macrofy (using the largest evaluations)
-      SyntaxTree minimized = contractMacros(unfolded);
-      axiomMacrofication.setMinimization(minimized);
+    ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+    try {
+      // results are collected in the order of the tasks
+      List<AxiomMacrofication> result = new ArrayList<>();
+      for (Future<AxiomMacrofication> f : pool.invokeAll(tasks)) {
+        result.add(f.get());
+      }
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Macrofication was interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Macrofication failed", e.getCause());
+    } finally {
+      pool.shutdownNow();
     }
   }
 
+  private AxiomMacrofication macrofy(
+      OWLAxiom a, SyntaxTreeBuilder treeBuilder, OWLRewriter rewriter) {
+
+    OWLAxiom axiom = a.getAxiomWithoutAnnotations();
+    SyntaxTree tree = treeBuilder.build(axiom);
+
+    // initialise macrofication data structure
+    AxiomMacrofication axiomMacrofication = new AxiomMacrofication(tree);
+
+    // fully expand all macro symbols
+    SyntaxTree expandedAxiom = expandMacros(a, treeBuilder, rewriter);
+    axiomMacrofication.setExpansion(expandedAxiom);
+
+    // get the fully expanded axiom
+    OWLAxiom unfolded = axiomMacrofication.getExpandedAxiom();
+
+    // macrofy (using the largest evaluations)
+    SyntaxTree minimized = contractMacros(unfolded, treeBuilder, rewriter);
+    axiomMacrofication.setMinimization(minimized);
+    return axiomMacrofication;
+  }
+
   /**
    * Replace a macro's expansion with a macro symbol in an axiom and return it's associated term
    * tree.
@@ -192,29 +244,19 @@ public class RewritingSystem {
    * @return the minimized axiom
    */
   public SyntaxTree contractMacros(OWLAxiom a) {
+    return contractMacros(a, this.treeBuilder, this.rewriter);
+  }
+
+  private SyntaxTree contractMacros(
+      OWLAxiom a, SyntaxTreeBuilder treeBuilder, OWLRewriter rewriter) {
 
     OWLAxiom axiom = a.getAxiomWithoutAnnotations();
 
     // initialise term tree that will be rewritten
-    SyntaxTree minimized = this.treeBuilder.build(axiom);
-
-    // sort subterms in descending order by their size
-    TreeMap<Integer, Set<OWLClassExpression>> size2subterms =
-        this.synTreeUtil.size2expressions(axiom);
-
-    // iterate over terms from largest to smallest
-    for (Map.Entry<Integer, Set<OWLClassExpression>> set : size2subterms.entrySet()) {
-      int size = set.getKey();
-      if (size > 1) { // skip atomic symbols
-        // terms with the same size are independent and can be traversed in any order
-        for (OWLClassExpression macroEvaluation : set.getValue()) {
-          if (this.evaluation2macro.containsKey(macroEvaluation)) {
-            this.rewriter.rewrite(
-                minimized, macroEvaluation, this.evaluation2macro.get(macroEvaluation));
-          }
-        }
-      }
-    }
+    SyntaxTree minimized = treeBuilder.build(axiom);
+
+    // replace terms top-down, i.e., from largest to smallest
+    rewriter.contractAll(minimized, this.evaluation2macro);
     return minimized;
   }
 
@@ -230,24 +272,8 @@ public class RewritingSystem {
     // initialise term tree that will be rewritten
     SyntaxTree minimized = this.treeBuilder.build(expr);
 
-    // sort subterms in descending order by their size
-    TreeMap<Integer, Set<OWLClassExpression>> size2subterms =
-        // TODO: change this so that it includes the expression itself
-        this.synTreeUtil.size2expressions(expr);
-
-    // iterate over terms from largest to smallest
-    for (Map.Entry<Integer, Set<OWLClassExpression>> set : size2subterms.entrySet()) {
-      int size = set.getKey();
-      if (size > 1) { // skip atomic symbols
-        // terms with the same size are independent and can be traversed in any order
-        for (OWLClassExpression macroEvaluation : set.getValue()) {
-          if (this.evaluation2macro.containsKey(macroEvaluation)) {
-            this.rewriter.rewrite(
-                minimized, macroEvaluation, this.evaluation2macro.get(macroEvaluation));
-          }
-        }
-      }
-    }
+    // replace terms top-down, i.e., from largest to smallest
+    this.rewriter.contractAll(minimized, this.evaluation2macro);
     return minimized;
   }
 
@@ -258,23 +284,31 @@ public class RewritingSystem {
    * @return the expanded axiom
    */
   public SyntaxTree expandMacros(OWLAxiom a) {
+    return expandMacros(a, this.treeBuilder, this.rewriter);
+  }
+
+  private SyntaxTree expandMacros(OWLAxiom a, SyntaxTreeBuilder treeBuilder, OWLRewriter rewriter) {
 
     OWLAxiom axiom = a.getAxiomWithoutAnnotations();
 
     // initialise term tree that will be rewritten
-    SyntaxTree expandedAxiom = this.treeBuilder.build(axiom);
-
-    if (!this.macroDefinitionAxioms.contains(axiom)) {
-      Set<OWLClass> namedClasses = axiom.getClassesInSignature();
-      namedClasses.retainAll(this.macroSymbols);
-      for (OWLClass c : namedClasses) {
-        OWLClassExpression evaluation = this.macro2evaluation.get(c);
-        this.rewriter.rewrite(expandedAxiom, c, evaluation);
-      }
+    SyntaxTree expandedAxiom = treeBuilder.build(axiom);
+
+    if (!this.macroDefinitionAxioms.contains(axiom) && this.containsMacros(axiom)) {
+      rewriter.expandAll(expandedAxiom, this.macro2evaluation);
     }
     return expandedAxiom;
   }
 
+  // axioms that are not indexed are assumed to contain macros
+  private boolean containsMacros(OWLAxiom axiom) {
+    if (this.axiomIndex == null) {
+      return true;
+    }
+    int id = this.axiomIndex.getId(axiom);
+    return id == -1 || this.axiomsWithMacros.get(id);
+  }
+
   /**
    * Replace all macro symbols (named class) with their evaluations (fixed-point expansion).
    *
@@ -286,14 +320,7 @@ public class RewritingSystem {
     // initialise term tree that will be rewritten
     SyntaxTree expandedAxiom = this.treeBuilder.build(expr);
 
-    Set<OWLClass> namedClasses = expr.getClassesInSignature();
-    namedClasses.retainAll(this.macroSymbols);
-    for (OWLClass c : namedClasses) {
-      if (this.macro2evaluation.containsKey(c)) {
-        OWLClassExpression evaluation = this.macro2evaluation.get(c);
-        this.rewriter.rewrite(expandedAxiom, c, evaluation);
-      }
-    }
+    this.rewriter.expandAll(expandedAxiom, this.macro2evaluation);
     return expandedAxiom;
   }
 
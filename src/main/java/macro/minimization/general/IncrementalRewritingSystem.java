@@ -0,0 +1,280 @@
+package macro.minimization.general;
+
+import java.util.*;
+import macro.parser.*;
+import macro.structure.*;
+import macro.term.*;
+import org.semanticweb.owlapi.model.*;
+
+/**
+ * Rewriting system for Problem 3 that keeps the macrofication of an ontology up to date while the
+ * ontology changes.
+ *
+ * <p>The system listens to changes of the ontology (via its manager). Adding or removing an axiom
+ * only updates
+ *
+ * <ul>
+ *   <li>the occurrences of the subterms of the axiom,
+ *   <li>the macros for these subterms (and their direct subterms), i.e., macros are introduced or
+ *       dropped according to the same criterion as in {@link RewritingSystem},
+ *   <li>the definitions of macros for terms in which a macro was introduced or dropped, and
+ *   <li>the macrofications of the axiom itself and of the axioms in which a macro was introduced or
+ *       dropped.
+ * </ul>
+ *
+ * Changes of import declarations cause the entire macrofication to be recomputed.
+ *
+ * <p>NB: macros keep their names as long as they exist, so the names may differ from the ones
+ * chosen by {@link RewritingSystem} for the same ontology.
+ */
+public class IncrementalRewritingSystem implements OWLOntologyChangeListener {
+
+  // types of class expression axioms
+  private static final Set<AxiomType<?>> AXIOM_TYPES =
+      Set.of(
+          AxiomType.EQUIVALENT_CLASSES,
+          AxiomType.DISJOINT_CLASSES,
+          AxiomType.SUBCLASS_OF,
+          AxiomType.DISJOINT_UNION);
+
+  private OWLOntology ontology;
+  private MacroDefinitions macroDefinitions;
+  private Map<OWLAxiom, AxiomMacrofication> macrofication;
+
+  // number of times an axiom (without annotations) occurs in the imports closure
+  private Map<OWLAxiom, Integer> axiom2count;
+
+  private SyntaxTreeBuilder treeBuilder;
+  private OWLRewriter rewriter;
+
+  // sizes and occurrences of subterms
+  private SubtermDAG subtermDAG;
+  // subterms that have macros
+  private BitSet macros;
+  // axioms that contain a subterm
+  private AxiomIndex axiomIndex;
+
+  /**
+   * Computes the macrofication of an ontology and registers the system as a listener for changes of
+   * the ontology.
+   *
+   * @param o the ontology
+   */
+  public IncrementalRewritingSystem(OWLOntology o) {
+    this.ontology = o;
+    this.treeBuilder = new SyntaxTreeBuilder();
+    this.rewriter = new OWLRewriter();
+
+    this.initialise();
+    o.getOWLOntologyManager().addOntologyChangeListener(this);
+  }
+
+  // stops listening to changes of the ontology
+  public void dispose() {
+    this.ontology.getOWLOntologyManager().removeOntologyChangeListener(this);
+  }
+
+  public MacroDefinitions getMacroDefinitions() {
+    return this.macroDefinitions;
+  }
+
+  public Collection<AxiomMacrofication> getMacrofication() {
+    return Collections.unmodifiableCollection(this.macrofication.values());
+  }
+
+  // returns null if the axiom is not a class expression axiom of the ontology (without annotations)
+  public AxiomMacrofication getMacrofication(OWLAxiom axiom) {
+    return this.macrofication.get(axiom);
+  }
+
+  public SubtermDAG getSubtermDAG() {
+    return this.subtermDAG;
+  }
+
+  private void initialise() {
+    this.subtermDAG = new SubtermDAG();
+    this.axiomIndex = new AxiomIndex();
+    this.macroDefinitions = new MacroDefinitions(this.subtermDAG);
+    this.macrofication = new HashMap<>();
+    this.axiom2count = new HashMap<>();
+
+    for (OWLOntology o : this.ontology.getImportsClosure()) {
+      for (AxiomType<?> type : AXIOM_TYPES) {
+        for (OWLAxiom a : o.getAxioms(type)) {
+          OWLAxiom axiom = a.getAxiomWithoutAnnotations();
+          if (!hasNegation(axiom)) {
+            this.count(axiom);
+          }
+        }
+      }
+    }
+
+    this.macros = new MacroSelection().select(this.subtermDAG);
+    for (int id = this.macros.nextSetBit(0); id >= 0; id = this.macros.nextSetBit(id + 1)) {
+      this.macroDefinitions.addMacroDefinition(this.subtermDAG.getExpression(id));
+    }
+    this.macroDefinitions.computeMinimalMacroDefinitions();
+
+    for (OWLAxiom a : this.axiom2count.keySet()) {
+      this.macrofy(a);
+    }
+  }
+
+  @Override
+  public void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+    Set<OWLOntology> closure = this.ontology.getImportsClosure();
+
+    // subterms of added or removed axioms
+    BitSet touched = new BitSet();
+    Set<OWLAxiom> added = new LinkedHashSet<>();
+    for (OWLOntologyChange change : changes) {
+      if (!closure.contains(change.getOntology())) {
+        continue;
+      }
+      if (change.isImportChange()) {
+        this.initialise();
+        return;
+      }
+      if (!change.isAxiomChange()) {
+        continue;
+      }
+      OWLAxiom axiom = change.getAxiom().getAxiomWithoutAnnotations();
+      if (!isClassExpressionAxiom(axiom) || hasNegation(axiom)) {
+        continue;
+      }
+      if (change.isAddAxiom()) {
+        int[] subterms = this.count(axiom);
+        if (subterms != null) {
+          added.add(axiom);
+          setAll(touched, subterms);
+        }
+      }
+      if (change.isRemoveAxiom()) {
+        int[] subterms = this.uncount(axiom);
+        if (subterms != null) {
+          this.macrofication.remove(axiom);
+          setAll(touched, subterms);
+        }
+      }
+    }
+
+    // introduce or drop macros
+    // (whether a term gets a macro depends on its occurrences and the occurrences of the terms it
+    // directly occurs in)
+    BitSet affected = (BitSet) touched.clone();
+    for (int id = touched.nextSetBit(0); id >= 0; id = touched.nextSetBit(id + 1)) {
+      setAll(affected, this.subtermDAG.getChildren(id));
+    }
+    List<Integer> changed = new ArrayList<>();
+    for (int id = affected.nextSetBit(0); id >= 0; id = affected.nextSetBit(id + 1)) {
+      if (MacroSelection.isCandidate(this.subtermDAG, id) != this.macros.get(id)) {
+        changed.add(id);
+      }
+    }
+    for (int id : changed) {
+      OWLClassExpression e = this.subtermDAG.getExpression(id);
+      if (this.macros.get(id)) {
+        this.macroDefinitions.removeMacroDefinition(e);
+        this.macros.clear(id);
+      } else {
+        this.macroDefinitions.addMacroDefinition(e);
+        this.macros.set(id);
+      }
+    }
+
+    // update definitions of macros for terms that contain changed terms (or are changed terms)
+    Map<OWLClassExpression, OWLClassExpression> evaluation2macro =
+        this.macroDefinitions.getEvaluation2macro();
+    BitSet containing = this.getTermsContaining(changed);
+    for (int id = containing.nextSetBit(0); id >= 0; id = containing.nextSetBit(id + 1)) {
+      if (this.macros.get(id)) {
+        OWLClassExpression e = this.subtermDAG.getExpression(id);
+        this.macroDefinitions.computeMinimalMacroDefinition(evaluation2macro.get(e));
+      }
+    }
+
+    // macrofy added axioms and axioms that contain changed terms
+    Set<OWLAxiom> axioms = new LinkedHashSet<>(added);
+    axioms.addAll(this.axiomIndex.getAxioms(changed));
+    for (OWLAxiom a : axioms) {
+      if (this.axiom2count.containsKey(a)) {
+        this.macrofy(a);
+      }
+    }
+  }
+
+  // returns the subterms of the axiom if it is new (and null otherwise)
+  private int[] count(OWLAxiom axiom) {
+    if (this.axiom2count.merge(axiom, 1, Integer::sum) > 1) {
+      return null;
+    }
+    int[] subterms = this.subtermDAG.add(axiom);
+    this.axiomIndex.add(axiom, subterms);
+    return subterms;
+  }
+
+  // returns the subterms of the axiom if it does not occur anymore (and null otherwise)
+  private int[] uncount(OWLAxiom axiom) {
+    Integer count = this.axiom2count.get(axiom);
+    if (count == null) {
+      return null;
+    }
+    if (count > 1) {
+      this.axiom2count.put(axiom, count - 1);
+      return null;
+    }
+    this.axiom2count.remove(axiom);
+    this.axiomIndex.remove(axiom);
+    return this.subtermDAG.remove(axiom);
+  }
+
+  private void macrofy(OWLAxiom a) {
+    SyntaxTree tree = this.treeBuilder.build(a);
+    SyntaxTree minimized = this.treeBuilder.build(a);
+    AxiomMacrofication axiomMacrofication = new AxiomMacrofication(tree);
+
+    // macrofy things (from the largest to the smallest expressions)
+    this.rewriter.contractAll(minimized, this.macroDefinitions.getEvaluation2macro());
+    axiomMacrofication.setMinimization(minimized);
+    this.macrofication.put(a, axiomMacrofication);
+  }
+
+  // the given terms and all terms they occur in
+  private BitSet getTermsContaining(List<Integer> terms) {
+    BitSet visited = new BitSet();
+    Deque<Integer> stack = new ArrayDeque<>();
+    for (int id : terms) {
+      visited.set(id);
+      stack.push(id);
+    }
+    while (!stack.isEmpty()) {
+      for (int parent : this.subtermDAG.getParents(stack.pop())) {
+        if (!visited.get(parent)) {
+          visited.set(parent);
+          stack.push(parent);
+        }
+      }
+    }
+    return visited;
+  }
+
+  private static void setAll(BitSet set, int[] ids) {
+    for (int id : ids) {
+      set.set(id);
+    }
+  }
+
+  private static boolean isClassExpressionAxiom(OWLAxiom axiom) {
+    return AXIOM_TYPES.contains(axiom.getAxiomType());
+  }
+
+  // axioms with negation are not macrofied (cf. RewritingSystem)
+  private static boolean hasNegation(OWLAxiom axiom) {
+    for (OWLClassExpression exp : axiom.getNestedClassExpressions()) {
+      if (exp instanceof OWLObjectComplementOf) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -32,12 +32,17 @@ public class MacroDefinitions {
   private SyntaxTreeUtil synTreeUtil;
 
   public MacroDefinitions() {
+    this(null);
+  }
+
+  // sizes of subterms are looked up in the given DAG (if not null)
+  public MacroDefinitions(SubtermDAG dag) {
     this.manager = OWLManager.createOWLOntologyManager();
     this.factory = manager.getOWLDataFactory();
     this.IOR = IRI.create("http://owl.generated.macro");
     this.nextMacroID = 0;
 
-    this.synTreeUtil = new SyntaxTreeUtil();
+    this.synTreeUtil = dag != null ? new SyntaxTreeUtil(dag) : new SyntaxTreeUtil();
 
     this.macro2evaluation = new HashMap<>();
     this.evaluation2macro = new HashMap<>();
@@ -64,34 +69,58 @@ public class MacroDefinitions {
     return this.macro2evaluation;
   }
 
+  // removes the macro of an expression (together with its definition)
+  public void removeMacroDefinition(OWLClassExpression exp) {
+    OWLClassExpression macro = this.evaluation2macro.remove(exp);
+    if (macro == null) {
+      return;
+    }
+    this.macro2evaluation.remove(macro);
+    OWLClassExpression expansion = this.macro2expansion.remove(macro);
+    if (expansion != null) {
+      this.expansion2macro.remove(expansion);
+    }
+  }
+
   public void computeMinimalMacroDefinitions() {
     // get macro 2 evaluation <- get subterms <- replace things
     SyntaxTreeBuilder builder = new SyntaxTreeBuilder();
 
-    for (Map.Entry<OWLClassExpression, OWLClassExpression> set : macro2evaluation.entrySet()) {
-      OWLClassExpression macro = set.getKey();
-      OWLClassExpression evaluation = set.getValue();
+    for (OWLClassExpression macro : macro2evaluation.keySet()) {
+      this.computeMinimalMacroDefinition(macro, builder);
+    }
+  }
+
+  // (re)computes the expansion of a single macro w.r.t. all current macros
+  public void computeMinimalMacroDefinition(OWLClassExpression macro) {
+    this.computeMinimalMacroDefinition(macro, new SyntaxTreeBuilder());
+  }
+
+  private void computeMinimalMacroDefinition(OWLClassExpression macro, SyntaxTreeBuilder builder) {
+    OWLClassExpression evaluation = macro2evaluation.get(macro);
 
-      SyntaxTree minimized = builder.build(evaluation);
+    SyntaxTree minimized = builder.build(evaluation);
 
-      TreeMap<Integer, Set<OWLClassExpression>> size2subterms =
-          this.synTreeUtil.size2subExpressions(evaluation);
+    TreeMap<Integer, Set<OWLClassExpression>> size2subterms =
+        this.synTreeUtil.size2subExpressions(evaluation);
 
-      for (Map.Entry<Integer, Set<OWLClassExpression>> entry : size2subterms.entrySet()) {
-        int size = entry.getKey();
-        if (size > 2) { // skip atomic symbols and binary things
-          Set<OWLClassExpression> independent = entry.getValue();
-          // macrofy things
-          for (OWLClassExpression i : independent) {
-            if (evaluation2macro.containsKey(i)) {
-              OWLRewriter rewriter = new OWLRewriter(minimized, i, evaluation2macro.get(i));
-            }
+    for (Map.Entry<Integer, Set<OWLClassExpression>> entry : size2subterms.entrySet()) {
+      int size = entry.getKey();
+      if (size > 2) { // skip atomic symbols and binary things
+        Set<OWLClassExpression> independent = entry.getValue();
+        // macrofy things
+        for (OWLClassExpression i : independent) {
+          if (evaluation2macro.containsKey(i)) {
+            OWLRewriter rewriter = new OWLRewriter(minimized, i, evaluation2macro.get(i));
           }
         }
       }
-      OWLClassExpression minExpression = this.synTreeUtil.getExpressionFromTree(minimized);
-      this.macro2expansion.put(macro, minExpression);
-      this.expansion2macro.put(minExpression, macro);
     }
+    OWLClassExpression minExpression = this.synTreeUtil.getExpressionFromTree(minimized);
+    OWLClassExpression previous = this.macro2expansion.put(macro, minExpression);
+    if (previous != null) {
+      this.expansion2macro.remove(previous);
+    }
+    this.expansion2macro.put(minExpression, macro);
   }
 }
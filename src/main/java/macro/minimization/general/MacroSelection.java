@@ -0,0 +1,195 @@
+package macro.minimization.general;
+
+import java.util.*;
+import java.util.function.*;
+import macro.structure.*;
+
+/**
+ * Selects the subterms for which macros are introduced (Problem 3).
+ *
+ * <p>A term with size > 2 that occurs more than once is a candidate unless it only occurs as part
+ * of a larger term (i.e., a term it directly occurs in has the same number of occurrences). Without
+ * limits, all candidates are selected. Otherwise, candidates are selected greedily by their gain,
+ * i.e., the number of symbols by which the encoding shrinks when introducing a macro for a term:
+ *
+ * <pre>
+ *   gain = occurrences * (size - 1) - (size + 1) = (occurrences - 1) * (size - 1) - 2
+ * </pre>
+ *
+ * where (size + 1) is the cost of the definition (the macro symbol and its expansion). Occurrences
+ * and sizes are taken w.r.t. the current encoding, i.e., after introducing the macros selected so
+ * far. So, the gain of a term decreases if a term it occurs in is selected (it occurs only once in
+ * the definition of that term) or if one of its subterms is selected (it gets smaller).
+ */
+// Since gains never increase, candidates are kept in a priority queue with (possibly outdated)
+// gains as upper bounds. The gain of the top candidate is recomputed and the candidate is
+// selected if it is still at least as large as the gain of the next candidate (otherwise it is put
+// back with its new gain). Gains are recomputed on the DAG, i.e., by visiting the terms the
+// candidate occurs in and its subterms.
+public class MacroSelection {
+
+  private int maxMacros;
+  private int minGain;
+
+  // selects all candidates
+  public MacroSelection() {
+    this(Integer.MAX_VALUE, Integer.MIN_VALUE);
+  }
+
+  /**
+   * @param maxMacros the maximal number of macros to select
+   * @param minGain the minimal gain of a selected macro
+   */
+  public MacroSelection(int maxMacros, int minGain) {
+    this.maxMacros = maxMacros;
+    this.minGain = minGain;
+  }
+
+  public boolean isExhaustive() {
+    return this.maxMacros == Integer.MAX_VALUE && this.minGain == Integer.MIN_VALUE;
+  }
+
+  // criterion for introducing a macro definition for a term
+  public static boolean isCandidate(SubtermDAG dag, int id) {
+    int occurrence = dag.getOccurrence(id);
+    // It suffices to check the terms a term directly occurs in because the number of occurrences
+    // can only decrease along the terms a term occurs in
+    for (int p : dag.getParents(id)) {
+      if (occurrence == dag.getOccurrence(p)) {
+        return false;
+      }
+    }
+    return dag.getSize(id) > 2 && occurrence > 1;
+  }
+
+  /**
+   * Selects terms for macros.
+   *
+   * @param dag the subterm DAG of the ontology
+   * @return the ids of the selected terms
+   */
+  public BitSet select(SubtermDAG dag) {
+    int n = dag.getNumberOfNodes();
+    BitSet selected = new BitSet(n);
+    if (this.isExhaustive()) {
+      for (int id = 0; id < n; id++) {
+        if (isCandidate(dag, id)) {
+          selected.set(id);
+        }
+      }
+      return selected;
+    }
+
+    // occurrences of terms that are not part of other terms (i.e., top-level terms of axioms)
+    int[] topLevelOccurrences = new int[n];
+    for (int id = 0; id < n; id++) {
+      topLevelOccurrences[id] += dag.getOccurrence(id);
+      for (int child : dag.getChildren(id)) {
+        topLevelOccurrences[child] -= dag.getOccurrence(id);
+      }
+    }
+
+    PriorityQueue<Candidate> queue = new PriorityQueue<>();
+    for (int id = 0; id < n; id++) {
+      if (isCandidate(dag, id)) {
+        queue.add(new Candidate(id, getGain(dag.getOccurrence(id), dag.getSize(id))));
+      }
+    }
+
+    int numberOfMacros = 0;
+    while (!queue.isEmpty() && numberOfMacros < this.maxMacros) {
+      Candidate top = queue.poll();
+      if (top.gain < this.minGain) {
+        break;
+      }
+      long gain =
+          getGain(
+              getOccurrence(dag, top.id, topLevelOccurrences, selected),
+              getSize(dag, top.id, selected));
+      if (!queue.isEmpty() && gain < queue.peek().gain) {
+        queue.add(new Candidate(top.id, gain));
+        continue;
+      }
+      if (gain < this.minGain) {
+        break;
+      }
+      selected.set(top.id);
+      numberOfMacros++;
+    }
+    return selected;
+  }
+
+  private static long getGain(long occurrence, long size) {
+    return (occurrence - 1) * (size - 1) - 2;
+  }
+
+  // the number of occurrences of a term in the current encoding
+  // (a term occurs once in the definition of a selected term it occurs in)
+  private static int getOccurrence(
+      SubtermDAG dag, int id, int[] topLevelOccurrences, BitSet selected) {
+    // terms the given term occurs in have larger ids,
+    // so they are visited before the terms they occur in when sorted in decreasing order
+    List<Integer> ancestors = collect(id, dag::getParents);
+    ancestors.sort(Collections.reverseOrder());
+    Map<Integer, Integer> occurrences = new HashMap<>();
+    for (int a : ancestors) {
+      int occurrence = topLevelOccurrences[a];
+      for (int p : dag.getParents(a)) {
+        occurrence += selected.get(p) ? 1 : occurrences.get(p);
+      }
+      occurrences.put(a, occurrence);
+    }
+    return occurrences.get(id);
+  }
+
+  // the size of a term in the current encoding (selected subterms are replaced by macros)
+  private static int getSize(SubtermDAG dag, int id, BitSet selected) {
+    List<Integer> descendants = collect(id, dag::getChildren);
+    Collections.sort(descendants);
+    // by how much terms shrink
+    Map<Integer, Integer> reductions = new HashMap<>();
+    for (int d : descendants) {
+      int reduction = 0;
+      for (int c : dag.getChildren(d)) {
+        reduction += selected.get(c) ? dag.getSize(c) - 1 : reductions.get(c);
+      }
+      reductions.put(d, reduction);
+    }
+    return dag.getSize(id) - reductions.get(id);
+  }
+
+  // collects all terms reachable from a term (including the term itself)
+  private static List<Integer> collect(int id, IntFunction<int[]> successors) {
+    Set<Integer> visited = new HashSet<>();
+    Deque<Integer> stack = new ArrayDeque<>();
+    visited.add(id);
+    stack.push(id);
+    while (!stack.isEmpty()) {
+      for (int s : successors.apply(stack.pop())) {
+        if (visited.add(s)) {
+          stack.push(s);
+        }
+      }
+    }
+    return new ArrayList<>(visited);
+  }
+
+  // candidates are ordered by decreasing gain (and increasing ids for equal gains)
+  private static class Candidate implements Comparable<Candidate> {
+    private int id;
+    private long gain;
+
+    private Candidate(int id, long gain) {
+      this.id = id;
+      this.gain = gain;
+    }
+
+    @Override
+    public int compareTo(Candidate other) {
+      if (this.gain != other.gain) {
+        return Long.compare(other.gain, this.gain);
+      }
+      return Integer.compare(this.id, other.id);
+    }
+  }
+}
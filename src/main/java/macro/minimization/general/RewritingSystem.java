@@ -26,48 +26,49 @@ public class RewritingSystem {
   private Set<OWLClassExpression> subterms;
 
   private SyntaxTreeBuilder treeBuilder;
-  private SyntaxTreeUtil syntaxTreeUtil;
   private OWLRewriter rewriter;
 
-  // these are NOT direct relationships -- these list everything
-  private Map<OWLClassExpression, Set<OWLClassExpression>> children;
-  private Map<OWLClassExpression, Set<OWLClassExpression>> parents;
-
   private TreeMap<Integer, Set<OWLClassExpression>> level2expression_bottom2top;
   private TreeMap<Integer, Set<OWLClassExpression>> level2expression_top2bottom;
 
-  private Map<OWLClassExpression, Integer> expression2occurrence;
-  private Map<OWLClassExpression, Integer> expression2size;
+  // sizes and occurrences of subterms
+  private SubtermDAG subtermDAG;
+  // axioms that contain a subterm
+  private AxiomIndex axiomIndex;
 
   public RewritingSystem(OWLOntology o) {
+    this(o, new MacroSelection());
+  }
+
+  /**
+   * @param o the ontology
+   * @param selection the selection of terms for which macros are introduced
+   */
+  public RewritingSystem(OWLOntology o, MacroSelection selection) {
 
     this.ontology = o;
-    this.macroDefinitions = new MacroDefinitions();
+    this.subtermDAG = new SubtermDAG();
+    this.macroDefinitions = new MacroDefinitions(this.subtermDAG);
 
     this.axioms = getClassExpressionAxioms(this.ontology);
 
     Set<OWLAxiom> axiomsWithNegation = this.getAxiomsWithNegation(axioms);
     axioms.removeAll(axiomsWithNegation);
 
-    this.children = new HashMap<>();
-    this.parents = new HashMap<>();
-    this.expression2occurrence = new HashMap<>();
-    this.expression2size = new HashMap<>();
-
     this.subterms = new HashSet<>();
 
     this.treeBuilder = new SyntaxTreeBuilder();
-    this.syntaxTreeUtil = new SyntaxTreeUtil();
     this.rewriter = new OWLRewriter();
 
+    this.axiomIndex = new AxiomIndex();
     for (OWLAxiom a : axioms) {
-      buildSubTermRelationship(a);
-      initialiseSizeAndOccurrence(a);
+      this.subterms.addAll(a.getNestedClassExpressions());
+      this.axiomIndex.add(a, this.subtermDAG.add(a));
     }
 
     this.initialiseLevelMaps();
 
-    this.initialiseMacroDefinitions();
+    this.initialiseMacroDefinitions(selection);
     this.buildMacrofication();
   }
 
@@ -83,30 +84,14 @@ public class RewritingSystem {
     return this.axioms;
   }
 
-  private void initialiseMacroDefinitions() {
+  private void initialiseMacroDefinitions(MacroSelection selection) {
 
+    BitSet selected = selection.select(this.subtermDAG);
     for (Map.Entry<Integer, Set<OWLClassExpression>> set :
         this.level2expression_bottom2top.entrySet()) {
-      int level = set.getKey();
       Set<OWLClassExpression> expressions = set.getValue();
       for (OWLClassExpression e : expressions) {
-
-        int eOccurrence = this.expression2occurrence.get(e);
-        Set<OWLClassExpression> parents = this.parents.get(e);
-
-        boolean dominatingParent = false;
-        if (parents != null) {
-          for (OWLClassExpression p : parents) {
-            int pOccurrence = this.expression2occurrence.get(p);
-            if (eOccurrence == pOccurrence) {
-              dominatingParent = true;
-            }
-          }
-        }
-        // criterion for introducing a macro definition for a term
-        if (!dominatingParent
-            && this.expression2size.get(e) > 2
-            && this.expression2occurrence.get(e) > 1) {
+        if (selected.get(this.subtermDAG.getId(e))) {
           this.macroDefinitions.addMacroDefinition(e);
         }
       }
@@ -120,6 +105,13 @@ public class RewritingSystem {
     Map<OWLClassExpression, OWLClassExpression> evaluation2macro =
         this.macroDefinitions.getEvaluation2macro();
 
+    // only axioms that contain terms with macros need to be rewritten
+    List<Integer> terms = new ArrayList<>();
+    for (OWLClassExpression e : evaluation2macro.keySet()) {
+      terms.add(this.subtermDAG.getId(e));
+    }
+    Set<OWLAxiom> axiomsWithMacros = new HashSet<>(this.axiomIndex.getAxioms(terms));
+
     this.macrofication = new HashSet<>();
     for (OWLAxiom a : this.axioms) {
 
@@ -127,22 +119,9 @@ public class RewritingSystem {
       SyntaxTree minimized = this.treeBuilder.build(a);
       AxiomMacrofication axiomMacrofication = new AxiomMacrofication(tree);
 
-      // returns size 2 expressions
-      // (sorted in descending order -- meaning we start with the largest expressions)
-      TreeMap<Integer, Set<OWLClassExpression>> size2subterms =
-          this.syntaxTreeUtil.size2expressions(a);
-
-      for (Map.Entry<Integer, Set<OWLClassExpression>> set : size2subterms.entrySet()) {
-        int size = set.getKey();
-        if (size > 1) { // skip atomic symbols and binary things
-          Set<OWLClassExpression> independent = set.getValue();
-          // macrofy things
-          for (OWLClassExpression i : independent) {
-            if (evaluation2macro.containsKey(i)) {
-              this.rewriter.rewrite(minimized, i, evaluation2macro.get(i));
-            }
-          }
-        }
+      // macrofy things (from the largest to the smallest expressions)
+      if (axiomsWithMacros.contains(a)) {
+        this.rewriter.contractAll(minimized, evaluation2macro);
       }
       axiomMacrofication.setMinimization(minimized);
       macrofication.add(axiomMacrofication);
@@ -154,8 +133,9 @@ public class RewritingSystem {
     this.level2expression_top2bottom = new TreeMap<>(Collections.reverseOrder());
     this.level2expression_bottom2top = new TreeMap<>();
 
+    int[] levels = this.computeLevels();
     for (OWLClassExpression e : this.subterms) {
-      int level = getLevel(e);
+      int level = levels[this.subtermDAG.getId(e)];
       this.level2expression_bottom2top.putIfAbsent(level, new HashSet<>());
       this.level2expression_bottom2top.get(level).add(e);
 
@@ -164,6 +144,20 @@ public class RewritingSystem {
     }
   }
 
+  // The level of a term is the height of its syntax tree w.r.t. class expressions,
+  // i.e., 0 for terms without class expression subterms and 1 + the maximal level of its direct
+  // subterms otherwise.
+  // Subterms have smaller ids than the terms they occur in, so one pass over the ids suffices.
+  private int[] computeLevels() {
+    int[] levels = new int[this.subtermDAG.getNumberOfNodes()];
+    for (int id = 0; id < levels.length; id++) {
+      for (int child : this.subtermDAG.getChildren(id)) {
+        levels[id] = Math.max(levels[id], levels[child] + 1);
+      }
+    }
+    return levels;
+  }
+
   public TreeMap<Integer, Set<OWLClassExpression>> getLevels_bottom2top() {
     return this.level2expression_bottom2top;
   }
@@ -172,87 +166,8 @@ public class RewritingSystem {
     return this.level2expression_top2bottom;
   }
 
-  public Map<OWLClassExpression, Integer> getExpression2occurrence() {
-    return this.expression2occurrence;
-  }
-
-  public Map<OWLClassExpression, Integer> getExpression2size() {
-    return this.expression2size;
-  }
-
-  public Map<OWLClassExpression, Set<OWLClassExpression>> getParents() {
-    return this.parents;
-  }
-
-  private void buildSubTermRelationship(OWLAxiom a) {
-    for (OWLClassExpression exp : a.getNestedClassExpressions()) {
-      Set<OWLClassExpression> allSubterms = exp.getNestedClassExpressions();
-      this.subterms.addAll(allSubterms);
-      allSubterms.remove(exp);
-      this.children.put(exp, allSubterms);
-      for (OWLClassExpression e : allSubterms) {
-        this.parents.putIfAbsent(e, new HashSet<>());
-        this.parents.get(e).add(exp);
-      }
-    }
-  }
-
-  private void initialiseSizeAndOccurrence(OWLAxiom a) {
-
-    OWLAxiom noannotations = a.getAxiomWithoutAnnotations();
-    SyntaxTree tree = this.treeBuilder.build(noannotations);
-
-    // initialise expression2occurrence + expression2size
-    for (SyntaxNode node : tree.getNodes()) {
-      if (node instanceof ClassNode) {
-        ClassNode n = (ClassNode) node;
-        OWLClassExpression e = n.getExpression();
-        SyntaxTree eTree = treeBuilder.build(e);
-        this.expression2size.putIfAbsent(e, eTree.getSize());
-        this.expression2occurrence.putIfAbsent(e, 0);
-        this.expression2occurrence.put(e, this.expression2occurrence.get(e) + 1);
-      }
-      if (node instanceof SubClassOfNode) {
-        SubClassOfNode n = (SubClassOfNode) node;
-        OWLClassExpression e = n.getExpression();
-        SyntaxTree eTree = treeBuilder.build(e);
-        this.expression2size.putIfAbsent(e, eTree.getSize());
-        this.expression2occurrence.putIfAbsent(e, 0);
-        this.expression2occurrence.put(e, this.expression2occurrence.get(e) + 1);
-      }
-      if (node instanceof SuperClassOfNode) {
-        SuperClassOfNode n = (SuperClassOfNode) node;
-        OWLClassExpression e = n.getExpression();
-        SyntaxTree eTree = treeBuilder.build(e);
-        this.expression2size.putIfAbsent(e, eTree.getSize());
-        this.expression2occurrence.putIfAbsent(e, 0);
-        this.expression2occurrence.put(e, this.expression2occurrence.get(e) + 1);
-      }
-      if (node instanceof UnionNode) {
-        UnionNode n = (UnionNode) node;
-        OWLClassExpression e = n.getExpression();
-        SyntaxTree eTree = treeBuilder.build(e);
-        this.expression2size.putIfAbsent(e, eTree.getSize());
-        this.expression2occurrence.putIfAbsent(e, 0);
-        this.expression2occurrence.put(e, this.expression2occurrence.get(e) + 1);
-      }
-    }
-  }
-
-  private int getLevel(OWLClassExpression exp) {
-    int level = 0;
-    if (!this.children.get(exp).isEmpty()) {
-      level += 1;
-      int maxChildrenLevel = -1;
-      for (OWLClassExpression c : this.children.get(exp)) {
-        int cLevel = getLevel(c);
-        if (cLevel > maxChildrenLevel) {
-          maxChildrenLevel = cLevel;
-        }
-      }
-      level += maxChildrenLevel;
-    }
-    return level;
+  public SubtermDAG getSubtermDAG() {
+    return this.subtermDAG;
   }
 
   private Set<OWLAxiom> getAxiomsWithNegation(Set<OWLAxiom> axioms) {
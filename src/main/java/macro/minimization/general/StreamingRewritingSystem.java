@@ -0,0 +1,174 @@
+package macro.minimization.general;
+
+import java.util.*;
+import java.util.function.*;
+import macro.parser.*;
+import macro.structure.*;
+import macro.term.*;
+import org.semanticweb.owlapi.model.*;
+
+/**
+ * Rewriting system for Problem 3 that processes axioms one at a time.
+ *
+ * <p>In contrast to {@link RewritingSystem}, neither the set of axioms nor their syntax trees are
+ * kept in memory. Axioms are traversed twice:
+ *
+ * <ol>
+ *   <li>to count occurrences (and sizes) of all subterms in a {@link SubtermDAG} from which macro
+ *       definitions are chosen, and
+ *   <li>to macrofy each axiom and pass it on to a consumer (without collecting the results).
+ * </ol>
+ *
+ * So, apart from the ontology itself, memory only depends on the number of distinct subterms.
+ */
+public class StreamingRewritingSystem {
+
+  // types of class expression axioms
+  private static final List<AxiomType<?>> AXIOM_TYPES =
+      List.of(
+          AxiomType.EQUIVALENT_CLASSES,
+          AxiomType.DISJOINT_CLASSES,
+          AxiomType.SUBCLASS_OF,
+          AxiomType.DISJOINT_UNION);
+
+  private OWLOntology ontology;
+  private MacroDefinitions macroDefinitions;
+
+  private SyntaxTreeBuilder treeBuilder;
+  private OWLRewriter rewriter;
+
+  // sizes and occurrences of subterms
+  private SubtermDAG subtermDAG;
+
+  public StreamingRewritingSystem(OWLOntology o) {
+    this(o, new MacroSelection());
+  }
+
+  /**
+   * @param o the ontology
+   * @param selection the selection of terms for which macros are introduced
+   */
+  public StreamingRewritingSystem(OWLOntology o, MacroSelection selection) {
+    this.ontology = o;
+    this.subtermDAG = new SubtermDAG();
+    this.macroDefinitions = new MacroDefinitions(this.subtermDAG);
+
+    this.treeBuilder = new SyntaxTreeBuilder();
+    this.rewriter = new OWLRewriter();
+
+    // first pass
+    this.forEachAxiom(this.subtermDAG::add);
+    this.initialiseMacroDefinitions(selection);
+  }
+
+  public MacroDefinitions getMacroDefinitions() {
+    return this.macroDefinitions;
+  }
+
+  public SubtermDAG getSubtermDAG() {
+    return this.subtermDAG;
+  }
+
+  /**
+   * Macrofies all axioms (second pass).
+   *
+   * <p>The macrofications are not stored, i.e., every call rewrites the ontology again.
+   *
+   * @param consumer the consumer for the macrofication of each axiom
+   */
+  public void macrofy(Consumer<AxiomMacrofication> consumer) {
+    Map<OWLClassExpression, OWLClassExpression> evaluation2macro =
+        this.macroDefinitions.getEvaluation2macro();
+
+    this.forEachAxiom(
+        a -> {
+          SyntaxTree tree = this.treeBuilder.build(a);
+          SyntaxTree minimized = this.treeBuilder.build(a);
+          AxiomMacrofication axiomMacrofication = new AxiomMacrofication(tree);
+
+          // macrofy things (from the largest to the smallest expressions)
+          this.rewriter.contractAll(minimized, evaluation2macro);
+          axiomMacrofication.setMinimization(minimized);
+          consumer.accept(axiomMacrofication);
+        });
+  }
+
+  // same selection as in RewritingSystem
+  private void initialiseMacroDefinitions(MacroSelection selection) {
+    BitSet selected = selection.select(this.subtermDAG);
+    int n = this.subtermDAG.getNumberOfNodes();
+    int[] levels = new int[n];
+    for (int id = 0; id < n; id++) {
+      for (int child : this.subtermDAG.getChildren(id)) {
+        levels[id] = Math.max(levels[id], levels[child] + 1);
+      }
+    }
+
+    // introduce macros bottom-up
+    Integer[] ids = new Integer[n];
+    for (int id = 0; id < n; id++) {
+      ids[id] = id;
+    }
+    Arrays.sort(ids, Comparator.comparingInt(id -> levels[id]));
+    for (int id : ids) {
+      if (selected.get(id)) {
+        this.macroDefinitions.addMacroDefinition(this.subtermDAG.getExpression(id));
+      }
+    }
+
+    this.macroDefinitions.computeMinimalMacroDefinitions();
+  }
+
+  // Iterates over the class expression axioms (without annotations and negation) of the imports
+  // closure of the ontology in the same way as RewritingSystem, but without collecting them.
+  // Axioms that only differ in their annotations are visited once: an annotated axiom is skipped
+  // unless it is the least of its variants in its ontology (so no visited axioms are kept).
+  private void forEachAxiom(Consumer<OWLAxiom> consumer) {
+    List<OWLOntology> closure = new ArrayList<>(this.ontology.getImportsClosure());
+    for (int i = 0; i < closure.size(); i++) {
+      OWLOntology o = closure.get(i);
+      for (AxiomType<?> type : AXIOM_TYPES) {
+        // NB: getAxioms(type) would copy all axioms of the type into a set
+        Iterator<? extends OWLAxiom> axioms = o.axioms(type).iterator();
+        while (axioms.hasNext()) {
+          OWLAxiom a = axioms.next();
+          OWLAxiom axiom = a.getAxiomWithoutAnnotations();
+          if (a.isAnnotated() && !isFirstVariant(a, axiom, o)) {
+            continue;
+          }
+          if (this.isContainedIn(axiom, closure.subList(0, i)) || hasNegation(axiom)) {
+            continue;
+          }
+          consumer.accept(axiom);
+        }
+      }
+    }
+  }
+
+  // true if 'a' is the first axiom of the ontology that equals 'axiom' (ignoring annotations),
+  // where an axiom without annotations comes first and the others are ordered as OWL objects
+  private static boolean isFirstVariant(OWLAxiom a, OWLAxiom axiom, OWLOntology o) {
+    if (o.containsAxiom(axiom)) {
+      return false;
+    }
+    return o.axiomsIgnoreAnnotations(axiom).min(Comparator.naturalOrder()).get().equals(a);
+  }
+
+  private boolean isContainedIn(OWLAxiom axiom, List<OWLOntology> ontologies) {
+    for (OWLOntology o : ontologies) {
+      if (o.containsAxiomIgnoreAnnotations(axiom)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasNegation(OWLAxiom axiom) {
+    for (OWLClassExpression exp : axiom.getNestedClassExpressions()) {
+      if (exp instanceof OWLObjectComplementOf) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
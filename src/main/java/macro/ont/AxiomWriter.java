@@ -0,0 +1,200 @@
+package macro.ont;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.zip.*;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.formats.*;
+import org.semanticweb.owlapi.functional.renderer.*;
+import org.semanticweb.owlapi.io.*;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.owlxml.renderer.*;
+import org.semanticweb.owlapi.rdf.model.*;
+import org.semanticweb.owlapi.util.*;
+
+/**
+ * Writes axioms to a file one at a time (without adding them to an ontology first).
+ *
+ * <p>Axioms are written as an anonymous ontology in OWL/XML, functional syntax, or N-Triples
+ * (optionally compressed with gzip). Declarations for the entities used by the axioms are written
+ * when the writer is closed. Axioms that are written more than once are not filtered.
+ *
+ * <p>NB: n-ary axioms with a single operand (e.g., {@code EquivalentClasses(C)}) are tautologies
+ * that cannot be expressed in RDF, so they are not written in N-Triples.
+ */
+// OWLAPI's renderers need an ontology for the document header (e.g., prefixes). They get an empty
+// ontology, so memory only grows with the signature of the written axioms (for the declarations).
+public class AxiomWriter implements Closeable {
+
+  private File file;
+  private OutputFormat format;
+  private Writer writer;
+
+  private OWLDataFactory factory;
+  private OWLOntologyManager manager;
+  private OWLOntology header;
+  private Set<OWLEntity> signature;
+
+  // NB: PrintWriter does not throw IOExceptions (see close)
+  private PrintWriter printWriter;
+  private OWLXMLWriter xmlWriter;
+  private OWLObjectVisitor renderer;
+
+  // N-Triples: blank nodes of different axioms get different ids
+  private AtomicInteger nextBlankNode;
+
+  /**
+   * Opens a file for writing (missing parent folders are created).
+   *
+   * @param file the file
+   * @param format the format of the file
+   * @param gzip if true, the file is compressed with gzip
+   * @throws IOException if the file cannot be opened (or the header cannot be written)
+   */
+  public AxiomWriter(File file, OutputFormat format, boolean gzip) throws IOException {
+    this.file = file;
+    this.format = format;
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+    OutputStream out = new FileOutputStream(file);
+    try {
+      if (gzip) {
+        out = new GZIPOutputStream(out, 1 << 16);
+      }
+      this.writer =
+          new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+      this.start();
+    } catch (IOException | RuntimeException e) {
+      out.close();
+      throw e;
+    }
+  }
+
+  // writes the header of the document
+  private void start() throws IOException {
+    this.factory = OWLManager.getOWLDataFactory();
+    this.manager = OWLManager.createOWLOntologyManager();
+    try {
+      this.header = this.manager.createOntology();
+    } catch (OWLOntologyCreationException e) {
+      throw new IllegalStateException(e);
+    }
+    this.signature = new HashSet<>();
+
+    switch (this.format) {
+      case OWL_XML:
+        this.printWriter = new PrintWriter(this.writer);
+        this.xmlWriter = new OWLXMLWriter(this.printWriter, this.header);
+        try {
+          this.xmlWriter.startDocument(this.header);
+        } catch (OWLRendererException e) {
+          throw new IOException(e);
+        }
+        this.renderer = new OWLXMLObjectRenderer(this.xmlWriter);
+        break;
+      case FUNCTIONAL:
+        DefaultPrefixManager prefixes = new DefaultPrefixManager();
+        for (Map.Entry<String, String> p : prefixes.getPrefixName2PrefixMap().entrySet()) {
+          this.writer.write("Prefix(" + p.getKey() + "=<" + p.getValue() + ">)\n");
+        }
+        this.writer.write("\nOntology(\n");
+        FunctionalSyntaxObjectRenderer functional =
+            new FunctionalSyntaxObjectRenderer(this.header, this.writer);
+        functional.setPrefixManager(prefixes);
+        this.renderer = functional;
+        break;
+      case N_TRIPLES:
+        this.nextBlankNode = new AtomicInteger();
+        break;
+    }
+  }
+
+  public void write(OWLAxiom axiom) throws IOException {
+    for (OWLEntity e : axiom.getSignature()) {
+      if (!e.isBuiltIn()) {
+        this.signature.add(e);
+      }
+    }
+    this.render(axiom);
+  }
+
+  public void writeAll(Iterable<? extends OWLAxiom> axioms) throws IOException {
+    for (OWLAxiom a : axioms) {
+      this.write(a);
+    }
+  }
+
+  private void render(OWLAxiom axiom) throws IOException {
+    switch (this.format) {
+      case OWL_XML:
+        axiom.accept(this.renderer);
+        break;
+      case FUNCTIONAL:
+        axiom.accept(this.renderer);
+        this.writer.write('\n');
+        break;
+      case N_TRIPLES:
+        if (axiom instanceof OWLNaryAxiom && ((OWLNaryAxiom<?>) axiom).operands().count() < 2) {
+          break;
+        }
+        // a translator per axiom, so it does not keep the triples of earlier axioms
+        RDFTranslator translator =
+            new RDFTranslator(
+                this.manager,
+                this.header,
+                new NTriplesDocumentFormat(),
+                false,
+                i -> true,
+                a -> false,
+                this.nextBlankNode,
+                new IdentityHashMap<>(),
+                new HashSet<>());
+        axiom.accept(translator);
+        for (RDFTriple t : translator.getGraph().getAllTriples()) {
+          this.writer.write(toNTriples(t.getSubject()));
+          this.writer.write(' ');
+          this.writer.write(toNTriples(t.getPredicate()));
+          this.writer.write(' ');
+          this.writer.write(toNTriples(t.getObject()));
+          this.writer.write(" .\n");
+        }
+        break;
+    }
+  }
+
+  private static String toNTriples(RDFNode node) {
+    if (node instanceof RDFResourceBlankNode) {
+      return "_:" + ((RDFResourceBlankNode) node).getNodeIDValue();
+    }
+    return node.ntriplesString();
+  }
+
+  // writes the declarations and closes the file
+  @Override
+  public void close() throws IOException {
+    try {
+      for (OWLEntity e : this.signature) {
+        this.render(this.factory.getOWLDeclarationAxiom(e));
+      }
+      switch (this.format) {
+        case OWL_XML:
+          this.xmlWriter.endDocument();
+          if (this.printWriter.checkError()) {
+            throw new IOException("Could not write " + this.file);
+          }
+          break;
+        case FUNCTIONAL:
+          this.writer.write(")\n");
+          break;
+        case N_TRIPLES:
+          break;
+      }
+    } finally {
+      this.writer.close();
+    }
+  }
+}
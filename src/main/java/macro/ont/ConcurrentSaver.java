@@ -0,0 +1,67 @@
+package macro.ont;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.semanticweb.owlapi.model.*;
+
+/**
+ * Writes files of axioms in the background (each file on its own thread).
+ *
+ * <p>{@link #save} returns immediately, so the caller can compute the next file while the previous
+ * ones are being written. {@link #close} waits until all files have been written. The axioms of a
+ * file must not be modified until then.
+ */
+public class ConcurrentSaver implements Closeable {
+
+  private ExecutorService pool;
+  private List<Future<?>> pending;
+
+  public ConcurrentSaver() {
+    this.pool = Executors.newCachedThreadPool();
+    this.pending = new ArrayList<>();
+  }
+
+  // cf. OntologySaver.saveAxioms
+  public void save(
+      Iterable<? extends OWLAxiom> axioms, String outputPath, OutputFormat format, boolean gzip) {
+    this.pending.add(
+        this.pool.submit(
+            () -> {
+              OntologySaver.saveAxioms(axioms, outputPath, format, gzip);
+              return null;
+            }));
+  }
+
+  /**
+   * Waits until all files have been written.
+   *
+   * @throws IOException if a file cannot be written (the remaining files are still written)
+   */
+  @Override
+  public void close() throws IOException {
+    IOException failure = null;
+    try {
+      for (Future<?> f : this.pending) {
+        try {
+          f.get();
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure =
+                e.getCause() instanceof IOException
+                    ? (IOException) e.getCause()
+                    : new IOException(e.getCause());
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Writing was interrupted");
+    } finally {
+      this.pool.shutdownNow();
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+}
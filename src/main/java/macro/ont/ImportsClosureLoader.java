@@ -0,0 +1,455 @@
+package macro.ont;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.formats.OWLXMLDocumentFormat;
+import org.semanticweb.owlapi.io.*;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.util.AutoIRIMapper;
+
+/**
+ * Loads an ontology together with its imports closure from local files.
+ *
+ * <p>The documents of the imports closure are parsed concurrently and their axioms are merged into
+ * a single ontology (as {@link OntologyLoader} does when copying imports). Imports are resolved
+ * offline, i.e., only against ontology files in local directories (by their ontology IRIs or
+ * version IRIs) or against existing files (for file IRIs). Imports that cannot be resolved are
+ * skipped (see {@link #getUnresolvedImports()}).
+ *
+ * <p>Optionally, parsed documents are cached in a directory. Cache entries are keyed by the
+ * location and the content of a document, so a document is not parsed again by later runs (that
+ * import it as well) unless it or one of its imports has been modified.
+ */
+// Loading has two phases:
+//
+// (1) Each document is parsed into its own manager in which all imports are ignored. When a
+//     document has been parsed, the documents it imports are submitted to the pool, so independent
+//     imports are parsed in parallel. This yields the imports of each document.
+// (2) The parse of a document (e.g., in RDF/XML) may depend on the entities declared in its
+//     imports (e.g., 'someValuesFrom' on a data property). So, documents with imports are parsed
+//     again with their imports closure visible (as a context ontology with the declarations of
+//     the closure). This is done in the order of the imports, i.e., a document is parsed once all
+//     documents it imports are complete (documents on import cycles are parsed together).
+//
+// Cache entries are OWL/XML documents with the ontology IRIs, imports, and axioms of a document,
+// stored as '<SHA-256 of the format version, document IRI, and content>.owx'. The first line of an
+// entry is the fingerprint of the imports closure it has been parsed with (the keys of all
+// imported documents), so an entry is only used in phase (2) if the closure has not changed.
+// Unreadable entries are ignored and overwritten.
+public class ImportsClosureLoader {
+
+  // version of the cache entries (part of their keys)
+  private static final String CACHE_VERSION = "macro-module-2";
+
+  // document IRI for imports in a manager that parses a single document
+  // (loading it fails, so the import is skipped)
+  private static final IRI IGNORED = IRI.create(new File("/dev/null/ignored-import"));
+
+  private List<File> directories;
+  private File cacheDirectory;
+  private int threads;
+
+  private Map<IRI, File> iri2file;
+  private Set<IRI> unresolvedImports;
+  private int cacheHits;
+
+  /**
+   * @param directories local directories (searched recursively) with the ontology files imports are
+   *     resolved against (the directory of a loaded ontology is always included)
+   * @param cacheDirectory the directory in which parsed documents are cached (or null for no cache)
+   * @param threads the number of threads used to parse documents
+   */
+  public ImportsClosureLoader(Collection<File> directories, File cacheDirectory, int threads) {
+    this.directories = new ArrayList<>(directories);
+    this.cacheDirectory = cacheDirectory;
+    this.threads = Math.max(1, threads);
+    this.unresolvedImports = new HashSet<>();
+  }
+
+  /**
+   * Loads an ontology with its imports closure.
+   *
+   * @param ontFile the ontology file
+   * @param manager the manager in which the ontology (with all axioms of the closure) is created
+   * @return the ontology
+   * @throws OWLOntologyCreationException if a document of the closure cannot be read or parsed
+   */
+  public OWLOntology load(File ontFile, OWLOntologyManager manager)
+      throws OWLOntologyCreationException {
+    this.initialiseIRIMapping(ontFile.getAbsoluteFile().getParentFile());
+    this.unresolvedImports.clear();
+    this.cacheHits = 0;
+    if (this.cacheDirectory != null) {
+      this.cacheDirectory.mkdirs();
+    }
+
+    // documents of the closure (in the order in which they have been found)
+    Map<File, Module> modules = new LinkedHashMap<>();
+    // ontology IRIs (and version IRIs) of the documents
+    Map<IRI, File> loaded = new HashMap<>();
+    // resolved imports of each document
+    Map<File, Map<IRI, File>> imports = new HashMap<>();
+
+    ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+    CompletionService<Module> service = new ExecutorCompletionService<>(pool);
+    try {
+      // (1) find the documents of the closure
+      File root = canonical(ontFile);
+      modules.put(root, null);
+      service.submit(() -> this.discover(root));
+      int pending = 1;
+      while (pending > 0) {
+        Module module = service.take().get();
+        pending--;
+        modules.put(module.file, module);
+        for (IRI i : module.getIRIs()) {
+          loaded.putIfAbsent(i, module.file);
+        }
+        for (IRI i : module.imports) {
+          File file = loaded.containsKey(i) ? loaded.get(i) : this.resolve(i);
+          if (file != null && !modules.containsKey(file)) {
+            modules.put(file, null);
+            service.submit(() -> this.discover(file));
+            pending++;
+          }
+        }
+      }
+      for (Module module : modules.values()) {
+        Map<IRI, File> resolved = new LinkedHashMap<>();
+        for (IRI i : module.imports) {
+          File file = loaded.containsKey(i) ? loaded.get(i) : this.resolve(i);
+          if (file == null) {
+            this.unresolvedImports.add(i);
+          } else if (!file.equals(module.file)) {
+            resolved.put(i, file);
+          }
+        }
+        imports.put(module.file, resolved);
+      }
+
+      // (2) parse the documents with their imports
+      Set<File> complete = new HashSet<>();
+      while (complete.size() < modules.size()) {
+        List<File> ready = new ArrayList<>();
+        for (File file : modules.keySet()) {
+          if (!complete.contains(file) && complete.containsAll(imports.get(file).values())) {
+            ready.add(file);
+          }
+        }
+        if (ready.isEmpty()) {
+          // import cycle (the context of a document may contain documents of the cycle as parsed
+          // in the first phase)
+          for (File file : modules.keySet()) {
+            if (!complete.contains(file)) {
+              ready.add(file);
+            }
+          }
+        }
+
+        List<Callable<Module>> tasks = new ArrayList<>();
+        for (File file : ready) {
+          Module module = modules.get(file);
+          String fingerprint = fingerprint(file, modules, imports);
+          Map<IRI, Set<OWLEntity>> context = new LinkedHashMap<>();
+          for (Map.Entry<IRI, File> i : imports.get(file).entrySet()) {
+            if (!module.getIRIs().contains(i.getKey())) {
+              context.put(i.getKey(), signature(i.getValue(), modules, imports));
+            }
+          }
+          tasks.add(() -> this.complete(module, fingerprint, context));
+        }
+        for (Future<Module> f : pool.invokeAll(tasks)) {
+          Module module = f.get();
+          modules.put(module.file, module);
+          complete.add(module.file);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OWLOntologyCreationException("Loading was interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof OWLOntologyCreationException) {
+        throw (OWLOntologyCreationException) e.getCause();
+      }
+      if (e.getCause() instanceof IOException) {
+        throw new OWLOntologyCreationIOException((IOException) e.getCause());
+      }
+      throw new OWLOntologyCreationException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+
+    Set<OWLAxiom> axioms = new HashSet<>();
+    for (Module module : modules.values()) {
+      axioms.addAll(module.axioms);
+    }
+    return manager.createOntology(axioms);
+  }
+
+  // imports that could not be resolved by the last call of 'load'
+  public Set<IRI> getUnresolvedImports() {
+    return Collections.unmodifiableSet(this.unresolvedImports);
+  }
+
+  // number of documents that have been read from the cache by the last call of 'load'
+  public synchronized int getCacheHits() {
+    return this.cacheHits;
+  }
+
+  private void initialiseIRIMapping(File ontDirectory) {
+    this.iri2file = new HashMap<>();
+    List<File> dirs = new ArrayList<>(this.directories);
+    dirs.add(ontDirectory);
+    for (File dir : dirs) {
+      AutoIRIMapper mapper = new AutoIRIMapper(dir, true);
+      for (IRI i : mapper.getOntologyIRIs()) {
+        IRI document = mapper.getDocumentIRI(i);
+        if (document != null) {
+          this.iri2file.putIfAbsent(i, canonical(new File(document.toURI())));
+        }
+      }
+    }
+  }
+
+  // returns null if the IRI cannot be resolved locally
+  private File resolve(IRI iri) {
+    File file = this.iri2file.get(iri);
+    if (file == null && "file".equalsIgnoreCase(iri.getScheme())) {
+      File f = new File(iri.toURI());
+      if (f.isFile()) {
+        file = canonical(f);
+      }
+    }
+    return file;
+  }
+
+  // first phase: reads a document from the cache or parses it without its imports
+  private Module discover(File file) throws IOException, OWLOntologyCreationException {
+    byte[] content = Files.readAllBytes(file.toPath());
+    String key = key(file, content);
+    if (this.cacheDirectory != null) {
+      Module module = readModule(file, key, this.getCacheFile(key));
+      if (module != null) {
+        return module;
+      }
+    }
+    return this.parse(file, key, content, fingerprint(Collections.emptySet()), new HashMap<>());
+  }
+
+  // second phase: parses a document with the given context unless it already has been
+  private Module complete(Module module, String fingerprint, Map<IRI, Set<OWLEntity>> context)
+      throws IOException, OWLOntologyCreationException {
+    if (module.fingerprint.equals(fingerprint)) {
+      if (module.cached) {
+        synchronized (this) {
+          this.cacheHits++;
+        }
+      }
+      return module;
+    }
+    byte[] content = Files.readAllBytes(module.file.toPath());
+    return this.parse(module.file, key(module.file, content), content, fingerprint, context);
+  }
+
+  // the context maps imports to the entities declared in their closures
+  private Module parse(
+      File file, String key, byte[] content, String fingerprint, Map<IRI, Set<OWLEntity>> context)
+      throws IOException, OWLOntologyCreationException {
+    OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+    OWLDataFactory factory = manager.getOWLDataFactory();
+    // NB: the context is created before the IRI mapper is set (which would map the document IRIs
+    // of all context ontologies to the same IRI)
+    for (Map.Entry<IRI, Set<OWLEntity>> i : context.entrySet()) {
+      OWLOntology imported = manager.createOntology(i.getKey());
+      for (OWLEntity e : i.getValue()) {
+        manager.addAxiom(imported, factory.getOWLDeclarationAxiom(e));
+      }
+    }
+    manager.getIRIMappers().set(i -> IGNORED);
+    OWLOntologyLoaderConfiguration config =
+        new OWLOntologyLoaderConfiguration()
+            .setMissingImportHandlingStrategy(MissingImportHandlingStrategy.SILENT);
+    OWLOntology o =
+        manager.loadOntologyFromOntologyDocument(
+            new StreamDocumentSource(open(file, content), IRI.create(file)), config);
+    Module module = new Module(file, key, fingerprint, o, false);
+
+    if (this.cacheDirectory != null) {
+      writeModule(o, fingerprint, this.getCacheFile(key));
+    }
+    return module;
+  }
+
+  private File getCacheFile(String key) {
+    return new File(this.cacheDirectory, key + ".owx");
+  }
+
+  // files with the extension '.gz' are decompressed (cf. AxiomWriter)
+  private static InputStream open(File file, byte[] content) throws IOException {
+    InputStream in = new ByteArrayInputStream(content);
+    return file.getName().endsWith(".gz") ? new GZIPInputStream(in) : in;
+  }
+
+  // the entities of the documents imported by a file (directly or indirectly, including the file)
+  private static Set<OWLEntity> signature(
+      File file, Map<File, Module> modules, Map<File, Map<IRI, File>> imports) {
+    Set<OWLEntity> signature = new HashSet<>();
+    for (File f : closure(file, imports)) {
+      for (OWLAxiom a : modules.get(f).axioms) {
+        for (OWLEntity e : a.getSignature()) {
+          if (!e.isBuiltIn()) {
+            signature.add(e);
+          }
+        }
+      }
+    }
+    return signature;
+  }
+
+  // the documents imported by a file (directly or indirectly)
+  private static Set<File> closure(File file, Map<File, Map<IRI, File>> imports) {
+    Set<File> closure = new HashSet<>();
+    Deque<File> queue = new ArrayDeque<>();
+    queue.add(file);
+    while (!queue.isEmpty()) {
+      File f = queue.poll();
+      if (closure.add(f)) {
+        queue.addAll(imports.get(f).values());
+      }
+    }
+    return closure;
+  }
+
+  // identifies the imports closure of a document (by the keys of the imported documents)
+  private static String fingerprint(
+      File file, Map<File, Module> modules, Map<File, Map<IRI, File>> imports) {
+    Set<String> keys = new TreeSet<>();
+    for (File i : imports.get(file).values()) {
+      for (File f : closure(i, imports)) {
+        keys.add(modules.get(f).key);
+      }
+    }
+    return fingerprint(keys);
+  }
+
+  private static String fingerprint(Set<String> keys) {
+    return sha256(String.join("\n", keys).getBytes(StandardCharsets.UTF_8));
+  }
+
+  // a document is identified by its location (the base of relative IRIs) and its content
+  private static String key(File file, byte[] content) {
+    byte[] location =
+        (CACHE_VERSION + "\n" + IRI.create(file) + "\n").getBytes(StandardCharsets.UTF_8);
+    byte[] bytes = Arrays.copyOf(location, location.length + content.length);
+    System.arraycopy(content, 0, bytes, location.length, content.length);
+    return sha256(bytes);
+  }
+
+  private static Module readModule(File file, String key, File cacheFile) {
+    if (!cacheFile.isFile()) {
+      return null;
+    }
+    try (InputStream in = new BufferedInputStream(new FileInputStream(cacheFile))) {
+      StringBuilder fingerprint = new StringBuilder();
+      for (int c = in.read(); c != '\n'; c = in.read()) {
+        if (c < 0) {
+          return null;
+        }
+        fingerprint.append((char) c);
+      }
+      OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+      manager.getIRIMappers().set(i -> IGNORED);
+      OWLOntologyLoaderConfiguration config =
+          new OWLOntologyLoaderConfiguration()
+              .setMissingImportHandlingStrategy(MissingImportHandlingStrategy.SILENT);
+      OWLOntology o =
+          manager.loadOntologyFromOntologyDocument(
+              new StreamDocumentSource(in, IRI.create(cacheFile), new OWLXMLDocumentFormat(), null),
+              config);
+      return new Module(file, key, fingerprint.toString(), o, true);
+    } catch (IOException | OWLOntologyCreationException e) {
+      return null;
+    }
+  }
+
+  // entries are written to a temporary file first, so concurrent runs never read partial entries
+  private static void writeModule(OWLOntology o, String fingerprint, File file) throws IOException {
+    File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+      out.write((fingerprint + "\n").getBytes(StandardCharsets.UTF_8));
+      o.getOWLOntologyManager().saveOntology(o, new OWLXMLDocumentFormat(), out);
+    } catch (OWLOntologyStorageException e) {
+      tmp.delete();
+      throw new IOException(e);
+    }
+    try {
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      tmp.delete();
+    }
+  }
+
+  private static String sha256(byte[] content) {
+    try {
+      StringBuilder hex = new StringBuilder();
+      for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static File canonical(File file) {
+    try {
+      return file.getCanonicalFile();
+    } catch (IOException e) {
+      return file.getAbsoluteFile();
+    }
+  }
+
+  // a parsed document
+  private static class Module {
+    private File file;
+    private String key;
+    private String fingerprint; // of the imports closure the document has been parsed with
+    private boolean cached; // true if the module has been read from the cache
+
+    private IRI ontologyIRI; // null for anonymous ontologies
+    private IRI versionIRI; // null if there is no version IRI
+    private List<IRI> imports;
+    private List<OWLAxiom> axioms;
+
+    private Module(File file, String key, String fingerprint, OWLOntology o, boolean cached) {
+      this.file = file;
+      this.key = key;
+      this.fingerprint = fingerprint;
+      this.cached = cached;
+      this.ontologyIRI = o.getOntologyID().getOntologyIRI().orElse(null);
+      this.versionIRI = o.getOntologyID().getVersionIRI().orElse(null);
+      this.imports = new ArrayList<>();
+      for (OWLImportsDeclaration d : o.getImportsDeclarations()) {
+        this.imports.add(d.getIRI());
+      }
+      this.axioms = new ArrayList<>(o.getAxioms());
+    }
+
+    private List<IRI> getIRIs() {
+      List<IRI> iris = new ArrayList<>();
+      if (this.ontologyIRI != null) {
+        iris.add(this.ontologyIRI);
+      }
+      if (this.versionIRI != null) {
+        iris.add(this.versionIRI);
+      }
+      return iris;
+    }
+  }
+}
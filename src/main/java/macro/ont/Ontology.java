@@ -4,6 +4,7 @@ import java.io.File;
 import java.util.*;
 import java.util.stream.*;
 import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.*;
 
 public class Ontology {
 
@@ -13,13 +14,13 @@ public class Ontology {
 
   public Ontology(OWLOntology o) {
     this.ontology = o;
-    this.signature = this.ontology.getSignature();
+    this.signature = this.ontology.getSignature(Imports.INCLUDED);
   }
 
   public Ontology(File ontFile, boolean imports) {
     OntologyLoader loader = new OntologyLoader(ontFile, imports);
     this.ontology = loader.getOntology();
-    this.signature = this.ontology.getSignature();
+    this.signature = this.ontology.getSignature(Imports.INCLUDED);
   }
 
   public OWLOntology getOntology() {
@@ -31,7 +32,7 @@ public class Ontology {
   }
 
   private boolean checkEntity(OWLEntity entity) {
-    return (this.ontology.getSignature().contains(entity));
+    return (this.ontology.getSignature(Imports.INCLUDED).contains(entity));
   }
 
   public Set<String> getImportClosure() {
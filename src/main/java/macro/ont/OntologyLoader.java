@@ -1,35 +1,111 @@
 package macro.ont;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.stream.Stream;
 import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.FileDocumentSource;
+import org.semanticweb.owlapi.io.GZipFileDocumentSource;
+import org.semanticweb.owlapi.io.OWLOntologyDocumentSource;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 import org.semanticweb.owlapi.model.parameters.Imports;
 import org.semanticweb.owlapi.util.AutoIRIMapper;
 
+/**
+ * Loads an ontology from a file.
+ *
+ * <p>Imports can be included in two ways:
+ *
+ * <ul>
+ *   <li>by copying all axioms of the imports closure into a new ontology (the default), or
+ *   <li>by keeping the loaded ontology together with its imports, i.e., the ontology is a view of
+ *       its imports closure (without copying any axioms). Code that reads axioms needs to include
+ *       imports (e.g., with {@link #axioms()} or {@code getAxioms(type, Imports.INCLUDED)}).
+ * </ul>
+ *
+ * The second mode avoids holding two copies of all axioms at the same time while loading.
+ * Alternatively, the imports closure can be loaded (and copied) by an {@link ImportsClosureLoader},
+ * which parses imported documents in parallel and can cache them.
+ *
+ * <p>Snapshots (see {@link OntologySnapshot}) are recognised and loaded regardless of the mode. All
+ * axioms of a snapshot are decoded when it is loaded (which is still much faster than parsing).
+ */
 public class OntologyLoader {
 
   private OWLOntology ontology;
   private OWLOntologyManager manager;
+  private boolean importsCopied;
 
   private double loadingTime;
 
   public OntologyLoader(File file, boolean includeImports) {
+    this(file, includeImports, true);
+  }
+
+  /**
+   * @param file the ontology file
+   * @param includeImports if true, imported ontologies are loaded as well
+   * @param copyImports if true, the axioms of the imports closure are copied into a single ontology
+   *     (otherwise the loaded ontology and its imports are kept as they are)
+   */
+  public OntologyLoader(File file, boolean includeImports, boolean copyImports) {
     this.loadingTime = 0.0;
-    if (includeImports) {
+    if (OntologySnapshot.isSnapshot(file)) {
+      loadSnapshot(file);
+    } else if (includeImports && copyImports) {
       loadOntologyWithImports(file);
+    } else if (includeImports) {
+      loadImportsClosure(file);
     } else {
       loadOntology(file);
     }
   }
 
+  /**
+   * Loads an ontology with its imports closure using the given loader (the axioms of the imports
+   * closure are copied into a single ontology).
+   *
+   * @param file the ontology file
+   * @param importsLoader the loader for the imports closure (if null, the ontology is loaded as a
+   *     view of its imports closure, cf. {@link #OntologyLoader(File, boolean, boolean)})
+   */
+  public OntologyLoader(File file, ImportsClosureLoader importsLoader) {
+    this.loadingTime = 0.0;
+    if (OntologySnapshot.isSnapshot(file)) {
+      loadSnapshot(file);
+      return;
+    }
+    if (importsLoader == null) {
+      loadImportsClosure(file);
+      return;
+    }
+    manager = OWLManager.createOWLOntologyManager();
+    ontology = null;
+    try {
+      long starTime = System.nanoTime();
+      ontology = importsLoader.load(file, manager);
+      long endTime = System.nanoTime();
+      double duration = (endTime - starTime) / 1000000000.0;
+      this.loadingTime = duration;
+      importsCopied = true;
+      for (IRI i : importsLoader.getUnresolvedImports()) {
+        System.out.println("Could not resolve import " + i + " locally (skipped)");
+      }
+    } catch (OWLOntologyCreationException e) {
+      e.printStackTrace();
+    }
+  }
+
   private void loadOntology(File ontFile) {
     manager = OWLManager.createOWLOntologyManager();
     ontology = null;
     try {
       long starTime = System.nanoTime();
-      ontology = manager.loadOntologyFromOntologyDocument(ontFile);
+      ontology = manager.loadOntologyFromOntologyDocument(getDocumentSource(ontFile));
       long endTime = System.nanoTime();
       double duration = (endTime - starTime) / 1000000000.0;
       this.loadingTime = duration;
@@ -46,17 +122,73 @@ public class OntologyLoader {
     try {
 
       long starTime = System.nanoTime();
-      OWLOntology o = tempManager.loadOntologyFromOntologyDocument(ontFile);
+      OWLOntology o = tempManager.loadOntologyFromOntologyDocument(getDocumentSource(ontFile));
       long endTime = System.nanoTime();
       double duration = (endTime - starTime) / 1000000000.0;
       this.loadingTime = duration;
       // include all imports
       ontology = manager.createOntology(o.getAxioms(Imports.INCLUDED));
+      importsCopied = true;
     } catch (OWLOntologyCreationException e) {
       e.printStackTrace();
     }
   }
 
+  // loads the axioms of a snapshot (which has no imports); all axioms are decoded eagerly
+  private void loadSnapshot(File ontFile) {
+    manager = OWLManager.createOWLOntologyManager();
+    ontology = null;
+    try {
+      long starTime = System.nanoTime();
+      OntologySnapshot snapshot = new OntologySnapshot(ontFile);
+      ontology = manager.createOntology(snapshot.axioms());
+      long endTime = System.nanoTime();
+      double duration = (endTime - starTime) / 1000000000.0;
+      this.loadingTime = duration;
+    } catch (IOException | OWLOntologyCreationException e) {
+      e.printStackTrace();
+    }
+  }
+
+  // loads the ontology with its imports without merging them
+  private void loadImportsClosure(File ontFile) {
+    manager = OWLManager.createOWLOntologyManager();
+    manager.addIRIMapper(new AutoIRIMapper(ontFile.getParentFile(), true));
+    ontology = null;
+    try {
+      long starTime = System.nanoTime();
+      ontology = manager.loadOntologyFromOntologyDocument(getDocumentSource(ontFile));
+      long endTime = System.nanoTime();
+      double duration = (endTime - starTime) / 1000000000.0;
+      this.loadingTime = duration;
+    } catch (OWLOntologyCreationException e) {
+      e.printStackTrace();
+    }
+  }
+
+  // files with the extension '.gz' are decompressed (cf. AxiomWriter)
+  static OWLOntologyDocumentSource getDocumentSource(File ontFile) {
+    if (ontFile.getName().endsWith(".gz")) {
+      return new GZipFileDocumentSource(ontFile);
+    }
+    return new FileDocumentSource(ontFile);
+  }
+
+  /**
+   * Returns the axioms of the ontology including its imports (without copying them).
+   *
+   * <p>NB: an axiom that occurs in several ontologies of the imports closure is returned for each
+   * of them.
+   */
+  public Stream<OWLAxiom> axioms() {
+    return ontology.axioms(Imports.INCLUDED);
+  }
+
+  // true if the axioms of the imports closure have been copied into a single ontology
+  public boolean isImportsCopied() {
+    return this.importsCopied;
+  }
+
   public double getLoadingTime() {
     return this.loadingTime;
   }
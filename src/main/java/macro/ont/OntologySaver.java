@@ -1,6 +1,7 @@
 package macro.ont;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.formats.OWLXMLDocumentFormat;
@@ -12,14 +13,24 @@ import org.semanticweb.owlapi.model.OWLOntologyManager;
 public class OntologySaver {
 
   public static void saveAxioms(Set<OWLAxiom> axioms, String outputPath) throws Exception {
+    saveAxioms(axioms, outputPath, OutputFormat.OWL_XML, false);
+  }
 
-    OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
-    OWLOntology ontology = manager.createOntology();
-    File ontologyFile = new File(outputPath);
-    IRI documentIRI = IRI.create(ontologyFile.toURI());
-
-    manager.addAxioms(ontology, axioms);
-    manager.saveOntology(ontology, new OWLXMLDocumentFormat(), documentIRI);
+  /**
+   * Writes axioms to a file (one at a time, cf. {@link AxiomWriter}).
+   *
+   * @param axioms the axioms
+   * @param outputPath the path of the file
+   * @param format the format of the file
+   * @param gzip if true, the file is compressed with gzip
+   * @throws IOException if the file cannot be written
+   */
+  public static void saveAxioms(
+      Iterable<? extends OWLAxiom> axioms, String outputPath, OutputFormat format, boolean gzip)
+      throws IOException {
+    try (AxiomWriter writer = new AxiomWriter(new File(outputPath), format, gzip)) {
+      writer.writeAll(axioms);
+    }
   }
 
   public static void saveClassAssertionAxioms(Set<OWLClassAssertionAxiom> axioms, String outputPath)
@@ -0,0 +1,668 @@
+package macro.ont;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.vocab.OWLFacet;
+
+/**
+ * A compact binary snapshot of the class expression axioms of an ontology (subclass, equivalent
+ * classes, disjoint classes, and disjoint union axioms), i.e., the axioms that are macrofied.
+ *
+ * <p>A snapshot is read by memory-mapping the file, and an axiom is only decoded when it is
+ * accessed (see {@link #getAxiom(int)}). Decoding is much faster than parsing an ontology. NB:
+ * {@link OntologyLoader} decodes all axioms of a snapshot eagerly (via {@link #axioms()}) and adds
+ * them to a new ontology, since the rewriting systems work on ontologies.
+ *
+ * <p>NB: annotations of axioms are not stored.
+ */
+// Layout (big-endian):
+//
+//   magic, version                        (int, int)
+//   number of strings, string offsets     (int, int[n + 1])
+//   strings                               (UTF-8)
+//   number of axioms, axiom offsets       (int, int[n + 1])
+//   axioms                                (nodes)
+//
+// Strings are the IRIs (and lexical forms, language tags, and ids of anonymous individuals) used by
+// axioms. Offsets are relative to the start of the strings and axioms, respectively.
+//
+// Axioms are encoded in pre-order: a node is a tag (byte) followed by its arguments, where strings,
+// cardinalities, and numbers of operands are encoded as variable-length integers (7 bits per byte).
+public class OntologySnapshot {
+
+  private static final int MAGIC = 0x4d534e50; // "MSNP"
+  private static final int VERSION = 1;
+
+  // axioms
+  private static final byte SUBCLASS_OF = 1;
+  private static final byte EQUIVALENT_CLASSES = 2;
+  private static final byte DISJOINT_CLASSES = 3;
+  private static final byte DISJOINT_UNION = 4;
+
+  // class expressions
+  private static final byte CLASS = 10;
+  private static final byte OBJECT_INTERSECTION_OF = 11;
+  private static final byte OBJECT_UNION_OF = 12;
+  private static final byte OBJECT_COMPLEMENT_OF = 13;
+  private static final byte OBJECT_ONE_OF = 14;
+  private static final byte OBJECT_SOME_VALUES_FROM = 15;
+  private static final byte OBJECT_ALL_VALUES_FROM = 16;
+  private static final byte OBJECT_HAS_VALUE = 17;
+  private static final byte OBJECT_HAS_SELF = 18;
+  private static final byte OBJECT_MIN_CARDINALITY = 19;
+  private static final byte OBJECT_MAX_CARDINALITY = 20;
+  private static final byte OBJECT_EXACT_CARDINALITY = 21;
+  private static final byte DATA_SOME_VALUES_FROM = 22;
+  private static final byte DATA_ALL_VALUES_FROM = 23;
+  private static final byte DATA_HAS_VALUE = 24;
+  private static final byte DATA_MIN_CARDINALITY = 25;
+  private static final byte DATA_MAX_CARDINALITY = 26;
+  private static final byte DATA_EXACT_CARDINALITY = 27;
+
+  // object property expressions
+  private static final byte OBJECT_PROPERTY = 30;
+  private static final byte OBJECT_INVERSE_OF = 31;
+
+  // individuals
+  private static final byte NAMED_INDIVIDUAL = 40;
+  private static final byte ANONYMOUS_INDIVIDUAL = 41;
+
+  // data ranges
+  private static final byte DATATYPE = 50;
+  private static final byte DATA_INTERSECTION_OF = 51;
+  private static final byte DATA_UNION_OF = 52;
+  private static final byte DATA_COMPLEMENT_OF = 53;
+  private static final byte DATA_ONE_OF = 54;
+  private static final byte DATATYPE_RESTRICTION = 55;
+
+  private static final Set<AxiomType<?>> AXIOM_TYPES =
+      Set.of(
+          AxiomType.SUBCLASS_OF,
+          AxiomType.EQUIVALENT_CLASSES,
+          AxiomType.DISJOINT_CLASSES,
+          AxiomType.DISJOINT_UNION);
+
+  private OWLDataFactory factory;
+
+  private ByteBuffer strings;
+  private int[] stringOffsets;
+  private ByteBuffer nodes;
+  private int[] axiomOffsets;
+
+  // decoded strings and IRIs (NB: racing threads decode the same values)
+  private String[] decodedStrings;
+  private IRI[] decodedIRIs;
+
+  /**
+   * Opens a snapshot.
+   *
+   * @param file the snapshot file
+   * @throws IOException if the file cannot be read or is not a snapshot
+   */
+  public OntologySnapshot(File file) throws IOException {
+    this.factory = OWLManager.getOWLDataFactory();
+
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException(file + " is not a snapshot");
+      }
+      int version = buffer.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported snapshot version " + version + " of " + file);
+      }
+      this.stringOffsets = readOffsets(buffer);
+      this.strings = slice(buffer, this.stringOffsets[this.stringOffsets.length - 1]);
+      this.axiomOffsets = readOffsets(buffer);
+      this.nodes = slice(buffer, this.axiomOffsets[this.axiomOffsets.length - 1]);
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException(file + " is not a valid snapshot", e);
+    }
+
+    this.decodedStrings = new String[this.stringOffsets.length - 1];
+    this.decodedIRIs = new IRI[this.stringOffsets.length - 1];
+  }
+
+  // true if the file starts like a snapshot
+  public static boolean isSnapshot(File file) {
+    if (!file.isFile()) {
+      return false;
+    }
+    try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+      return in.readInt() == MAGIC;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  public int size() {
+    return this.axiomOffsets.length - 1;
+  }
+
+  // decodes the i-th axiom
+  public OWLAxiom getAxiom(int i) {
+    ByteBuffer buffer = this.nodes.duplicate();
+    buffer.position(this.axiomOffsets[i]);
+    return this.readAxiom(buffer);
+  }
+
+  // decodes all axioms (one at a time)
+  public Stream<OWLAxiom> axioms() {
+    return IntStream.range(0, this.size()).mapToObj(this::getAxiom);
+  }
+
+  /**
+   * Writes the class expression axioms of an ontology (including its imports) to a snapshot.
+   *
+   * @param o the ontology
+   * @param file the snapshot file
+   * @return the number of axioms in the snapshot
+   * @throws IOException if the file cannot be written
+   */
+  public static int write(OWLOntology o, File file) throws IOException {
+    Set<OWLAxiom> axioms = new LinkedHashSet<>();
+    for (AxiomType<?> type : AXIOM_TYPES) {
+      for (OWLAxiom a : o.getAxioms(type, true)) {
+        axioms.add(a.getAxiomWithoutAnnotations());
+      }
+    }
+    return write(axioms, file);
+  }
+
+  /**
+   * Writes class expression axioms to a snapshot.
+   *
+   * @param axioms the axioms (other axioms are skipped)
+   * @param file the snapshot file
+   * @return the number of axioms in the snapshot
+   * @throws IOException if the file cannot be written
+   */
+  public static int write(Collection<? extends OWLAxiom> axioms, File file) throws IOException {
+    Writer writer = new Writer();
+    List<Integer> axiomOffsets = new ArrayList<>();
+    axiomOffsets.add(0);
+    for (OWLAxiom a : axioms) {
+      if (AXIOM_TYPES.contains(a.getAxiomType())) {
+        writer.writeAxiom(a);
+        axiomOffsets.add(writer.nodes.size());
+      }
+    }
+
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      List<Integer> stringOffsets = new ArrayList<>();
+      ByteArrayOutputStream strings = new ByteArrayOutputStream();
+      stringOffsets.add(0);
+      for (String s : writer.strings.keySet()) {
+        strings.write(s.getBytes(StandardCharsets.UTF_8));
+        stringOffsets.add(strings.size());
+      }
+      writeOffsets(out, stringOffsets);
+      strings.writeTo(out);
+      writeOffsets(out, axiomOffsets);
+      writer.nodes.writeTo(out);
+    }
+    return axiomOffsets.size() - 1;
+  }
+
+  private static void writeOffsets(DataOutputStream out, List<Integer> offsets) throws IOException {
+    out.writeInt(offsets.size() - 1);
+    for (int offset : offsets) {
+      out.writeInt(offset);
+    }
+  }
+
+  private static int[] readOffsets(ByteBuffer buffer) {
+    int n = buffer.getInt();
+    int[] offsets = new int[n + 1];
+    for (int i = 0; i <= n; i++) {
+      offsets[i] = buffer.getInt();
+    }
+    return offsets;
+  }
+
+  // the next 'length' bytes of a buffer (the position of the buffer is moved past them)
+  private static ByteBuffer slice(ByteBuffer buffer, int length) {
+    ByteBuffer slice = buffer.slice();
+    slice.limit(length);
+    buffer.position(buffer.position() + length);
+    return slice;
+  }
+
+  // encodes axioms (and collects their strings)
+  private static class Writer {
+    private Map<String, Integer> strings = new LinkedHashMap<>();
+    private ByteArrayOutputStream nodes = new ByteArrayOutputStream();
+
+    private void writeAxiom(OWLAxiom a) {
+      if (a instanceof OWLSubClassOfAxiom) {
+        OWLSubClassOfAxiom axiom = (OWLSubClassOfAxiom) a;
+        this.nodes.write(SUBCLASS_OF);
+        this.writeClassExpression(axiom.getSubClass());
+        this.writeClassExpression(axiom.getSuperClass());
+      } else if (a instanceof OWLEquivalentClassesAxiom) {
+        this.nodes.write(EQUIVALENT_CLASSES);
+        this.writeClassExpressions(((OWLEquivalentClassesAxiom) a).getClassExpressions());
+      } else if (a instanceof OWLDisjointClassesAxiom) {
+        this.nodes.write(DISJOINT_CLASSES);
+        this.writeClassExpressions(((OWLDisjointClassesAxiom) a).getClassExpressions());
+      } else if (a instanceof OWLDisjointUnionAxiom) {
+        OWLDisjointUnionAxiom axiom = (OWLDisjointUnionAxiom) a;
+        this.nodes.write(DISJOINT_UNION);
+        this.writeIRI(axiom.getOWLClass().getIRI());
+        this.writeClassExpressions(axiom.getClassExpressions());
+      }
+    }
+
+    private void writeClassExpressions(Collection<? extends OWLClassExpression> exps) {
+      this.writeNumber(exps.size());
+      for (OWLClassExpression e : exps) {
+        this.writeClassExpression(e);
+      }
+    }
+
+    private void writeClassExpression(OWLClassExpression e) {
+      if (e instanceof OWLClass) {
+        this.nodes.write(CLASS);
+        this.writeIRI(((OWLClass) e).getIRI());
+      } else if (e instanceof OWLObjectIntersectionOf) {
+        this.nodes.write(OBJECT_INTERSECTION_OF);
+        this.writeClassExpressions(((OWLObjectIntersectionOf) e).getOperands());
+      } else if (e instanceof OWLObjectUnionOf) {
+        this.nodes.write(OBJECT_UNION_OF);
+        this.writeClassExpressions(((OWLObjectUnionOf) e).getOperands());
+      } else if (e instanceof OWLObjectComplementOf) {
+        this.nodes.write(OBJECT_COMPLEMENT_OF);
+        this.writeClassExpression(((OWLObjectComplementOf) e).getOperand());
+      } else if (e instanceof OWLObjectOneOf) {
+        Set<OWLIndividual> individuals = ((OWLObjectOneOf) e).getIndividuals();
+        this.nodes.write(OBJECT_ONE_OF);
+        this.writeNumber(individuals.size());
+        for (OWLIndividual i : individuals) {
+          this.writeIndividual(i);
+        }
+      } else if (e instanceof OWLObjectHasValue) {
+        OWLObjectHasValue r = (OWLObjectHasValue) e;
+        this.nodes.write(OBJECT_HAS_VALUE);
+        this.writeObjectProperty(r.getProperty());
+        this.writeIndividual(r.getFiller());
+      } else if (e instanceof OWLObjectHasSelf) {
+        this.nodes.write(OBJECT_HAS_SELF);
+        this.writeObjectProperty(((OWLObjectHasSelf) e).getProperty());
+      } else if (e instanceof OWLQuantifiedObjectRestriction) {
+        OWLQuantifiedObjectRestriction r = (OWLQuantifiedObjectRestriction) e;
+        if (e instanceof OWLObjectSomeValuesFrom) {
+          this.nodes.write(OBJECT_SOME_VALUES_FROM);
+        } else if (e instanceof OWLObjectAllValuesFrom) {
+          this.nodes.write(OBJECT_ALL_VALUES_FROM);
+        } else {
+          this.writeCardinality(
+              (OWLObjectCardinalityRestriction) r,
+              OBJECT_MIN_CARDINALITY,
+              OBJECT_MAX_CARDINALITY,
+              OBJECT_EXACT_CARDINALITY);
+        }
+        this.writeObjectProperty(r.getProperty());
+        this.writeClassExpression(r.getFiller());
+      } else if (e instanceof OWLDataHasValue) {
+        OWLDataHasValue r = (OWLDataHasValue) e;
+        this.nodes.write(DATA_HAS_VALUE);
+        this.writeIRI(r.getProperty().asOWLDataProperty().getIRI());
+        this.writeLiteral(r.getFiller());
+      } else if (e instanceof OWLQuantifiedDataRestriction) {
+        OWLQuantifiedDataRestriction r = (OWLQuantifiedDataRestriction) e;
+        if (e instanceof OWLDataSomeValuesFrom) {
+          this.nodes.write(DATA_SOME_VALUES_FROM);
+        } else if (e instanceof OWLDataAllValuesFrom) {
+          this.nodes.write(DATA_ALL_VALUES_FROM);
+        } else {
+          this.writeCardinality(
+              (OWLDataCardinalityRestriction) r,
+              DATA_MIN_CARDINALITY,
+              DATA_MAX_CARDINALITY,
+              DATA_EXACT_CARDINALITY);
+        }
+        this.writeIRI(r.getProperty().asOWLDataProperty().getIRI());
+        this.writeDataRange(r.getFiller());
+      } else {
+        throw new IllegalArgumentException("Unsupported class expression " + e);
+      }
+    }
+
+    // writes the tag and the cardinality of a cardinality restriction
+    private void writeCardinality(OWLCardinalityRestriction<?> r, byte min, byte max, byte exact) {
+      if (r instanceof OWLObjectMinCardinality || r instanceof OWLDataMinCardinality) {
+        this.nodes.write(min);
+      } else if (r instanceof OWLObjectMaxCardinality || r instanceof OWLDataMaxCardinality) {
+        this.nodes.write(max);
+      } else {
+        this.nodes.write(exact);
+      }
+      this.writeNumber(r.getCardinality());
+    }
+
+    private void writeObjectProperty(OWLObjectPropertyExpression p) {
+      if (p instanceof OWLObjectInverseOf) {
+        this.nodes.write(OBJECT_INVERSE_OF);
+        this.writeIRI(p.getNamedProperty().getIRI());
+      } else {
+        this.nodes.write(OBJECT_PROPERTY);
+        this.writeIRI(p.asOWLObjectProperty().getIRI());
+      }
+    }
+
+    private void writeIndividual(OWLIndividual i) {
+      if (i.isNamed()) {
+        this.nodes.write(NAMED_INDIVIDUAL);
+        this.writeIRI(i.asOWLNamedIndividual().getIRI());
+      } else {
+        this.nodes.write(ANONYMOUS_INDIVIDUAL);
+        this.writeString(i.asOWLAnonymousIndividual().getID().getID());
+      }
+    }
+
+    private void writeDataRange(OWLDataRange r) {
+      if (r instanceof OWLDatatype) {
+        this.nodes.write(DATATYPE);
+        this.writeIRI(((OWLDatatype) r).getIRI());
+      } else if (r instanceof OWLDataIntersectionOf) {
+        this.nodes.write(DATA_INTERSECTION_OF);
+        this.writeDataRanges(((OWLDataIntersectionOf) r).getOperands());
+      } else if (r instanceof OWLDataUnionOf) {
+        this.nodes.write(DATA_UNION_OF);
+        this.writeDataRanges(((OWLDataUnionOf) r).getOperands());
+      } else if (r instanceof OWLDataComplementOf) {
+        this.nodes.write(DATA_COMPLEMENT_OF);
+        this.writeDataRange(((OWLDataComplementOf) r).getDataRange());
+      } else if (r instanceof OWLDataOneOf) {
+        Set<OWLLiteral> values = ((OWLDataOneOf) r).getValues();
+        this.nodes.write(DATA_ONE_OF);
+        this.writeNumber(values.size());
+        for (OWLLiteral l : values) {
+          this.writeLiteral(l);
+        }
+      } else if (r instanceof OWLDatatypeRestriction) {
+        OWLDatatypeRestriction restriction = (OWLDatatypeRestriction) r;
+        Set<OWLFacetRestriction> facets = restriction.getFacetRestrictions();
+        this.nodes.write(DATATYPE_RESTRICTION);
+        this.writeIRI(restriction.getDatatype().getIRI());
+        this.writeNumber(facets.size());
+        for (OWLFacetRestriction f : facets) {
+          this.writeIRI(f.getFacet().getIRI());
+          this.writeLiteral(f.getFacetValue());
+        }
+      } else {
+        throw new IllegalArgumentException("Unsupported data range " + r);
+      }
+    }
+
+    private void writeDataRanges(Collection<? extends OWLDataRange> ranges) {
+      this.writeNumber(ranges.size());
+      for (OWLDataRange r : ranges) {
+        this.writeDataRange(r);
+      }
+    }
+
+    // literals are written as lexical form, datatype, and language tag (possibly empty)
+    private void writeLiteral(OWLLiteral l) {
+      this.writeString(l.getLiteral());
+      this.writeIRI(l.getDatatype().getIRI());
+      this.writeString(l.getLang());
+    }
+
+    private void writeIRI(IRI iri) {
+      this.writeString(iri.toString());
+    }
+
+    private void writeString(String s) {
+      Integer index = this.strings.get(s);
+      if (index == null) {
+        index = this.strings.size();
+        this.strings.put(s, index);
+      }
+      this.writeNumber(index);
+    }
+
+    private void writeNumber(int n) {
+      while ((n & ~0x7f) != 0) {
+        this.nodes.write((n & 0x7f) | 0x80);
+        n >>>= 7;
+      }
+      this.nodes.write(n);
+    }
+  }
+
+  private OWLAxiom readAxiom(ByteBuffer b) {
+    byte tag = b.get();
+    switch (tag) {
+      case SUBCLASS_OF:
+        OWLClassExpression sub = this.readClassExpression(b);
+        return this.factory.getOWLSubClassOfAxiom(sub, this.readClassExpression(b));
+      case EQUIVALENT_CLASSES:
+        return this.factory.getOWLEquivalentClassesAxiom(this.readClassExpressions(b));
+      case DISJOINT_CLASSES:
+        return this.factory.getOWLDisjointClassesAxiom(this.readClassExpressions(b));
+      case DISJOINT_UNION:
+        OWLClass c = this.factory.getOWLClass(this.readIRI(b));
+        return this.factory.getOWLDisjointUnionAxiom(c, this.readClassExpressions(b));
+      default:
+        throw new IllegalStateException("Unknown axiom tag " + tag);
+    }
+  }
+
+  private Set<OWLClassExpression> readClassExpressions(ByteBuffer b) {
+    int n = readNumber(b);
+    Set<OWLClassExpression> exps = new HashSet<>();
+    for (int i = 0; i < n; i++) {
+      exps.add(this.readClassExpression(b));
+    }
+    return exps;
+  }
+
+  private OWLClassExpression readClassExpression(ByteBuffer b) {
+    byte tag = b.get();
+    switch (tag) {
+      case CLASS:
+        return this.factory.getOWLClass(this.readIRI(b));
+      case OBJECT_INTERSECTION_OF:
+        return this.factory.getOWLObjectIntersectionOf(this.readClassExpressions(b));
+      case OBJECT_UNION_OF:
+        return this.factory.getOWLObjectUnionOf(this.readClassExpressions(b));
+      case OBJECT_COMPLEMENT_OF:
+        return this.factory.getOWLObjectComplementOf(this.readClassExpression(b));
+      case OBJECT_ONE_OF:
+        {
+          int n = readNumber(b);
+          Set<OWLIndividual> individuals = new HashSet<>();
+          for (int i = 0; i < n; i++) {
+            individuals.add(this.readIndividual(b));
+          }
+          return this.factory.getOWLObjectOneOf(individuals);
+        }
+      case OBJECT_HAS_VALUE:
+        {
+          OWLObjectPropertyExpression p = this.readObjectProperty(b);
+          return this.factory.getOWLObjectHasValue(p, this.readIndividual(b));
+        }
+      case OBJECT_HAS_SELF:
+        return this.factory.getOWLObjectHasSelf(this.readObjectProperty(b));
+      case OBJECT_SOME_VALUES_FROM:
+        {
+          OWLObjectPropertyExpression p = this.readObjectProperty(b);
+          return this.factory.getOWLObjectSomeValuesFrom(p, this.readClassExpression(b));
+        }
+      case OBJECT_ALL_VALUES_FROM:
+        {
+          OWLObjectPropertyExpression p = this.readObjectProperty(b);
+          return this.factory.getOWLObjectAllValuesFrom(p, this.readClassExpression(b));
+        }
+      case OBJECT_MIN_CARDINALITY:
+      case OBJECT_MAX_CARDINALITY:
+      case OBJECT_EXACT_CARDINALITY:
+        {
+          int cardinality = readNumber(b);
+          OWLObjectPropertyExpression p = this.readObjectProperty(b);
+          OWLClassExpression filler = this.readClassExpression(b);
+          if (tag == OBJECT_MIN_CARDINALITY) {
+            return this.factory.getOWLObjectMinCardinality(cardinality, p, filler);
+          }
+          if (tag == OBJECT_MAX_CARDINALITY) {
+            return this.factory.getOWLObjectMaxCardinality(cardinality, p, filler);
+          }
+          return this.factory.getOWLObjectExactCardinality(cardinality, p, filler);
+        }
+      case DATA_HAS_VALUE:
+        {
+          OWLDataProperty p = this.factory.getOWLDataProperty(this.readIRI(b));
+          return this.factory.getOWLDataHasValue(p, this.readLiteral(b));
+        }
+      case DATA_SOME_VALUES_FROM:
+        {
+          OWLDataProperty p = this.factory.getOWLDataProperty(this.readIRI(b));
+          return this.factory.getOWLDataSomeValuesFrom(p, this.readDataRange(b));
+        }
+      case DATA_ALL_VALUES_FROM:
+        {
+          OWLDataProperty p = this.factory.getOWLDataProperty(this.readIRI(b));
+          return this.factory.getOWLDataAllValuesFrom(p, this.readDataRange(b));
+        }
+      case DATA_MIN_CARDINALITY:
+      case DATA_MAX_CARDINALITY:
+      case DATA_EXACT_CARDINALITY:
+        {
+          int cardinality = readNumber(b);
+          OWLDataProperty p = this.factory.getOWLDataProperty(this.readIRI(b));
+          OWLDataRange filler = this.readDataRange(b);
+          if (tag == DATA_MIN_CARDINALITY) {
+            return this.factory.getOWLDataMinCardinality(cardinality, p, filler);
+          }
+          if (tag == DATA_MAX_CARDINALITY) {
+            return this.factory.getOWLDataMaxCardinality(cardinality, p, filler);
+          }
+          return this.factory.getOWLDataExactCardinality(cardinality, p, filler);
+        }
+      default:
+        throw new IllegalStateException("Unknown class expression tag " + tag);
+    }
+  }
+
+  private OWLObjectPropertyExpression readObjectProperty(ByteBuffer b) {
+    byte tag = b.get();
+    OWLObjectProperty p = this.factory.getOWLObjectProperty(this.readIRI(b));
+    return tag == OBJECT_INVERSE_OF ? this.factory.getOWLObjectInverseOf(p) : p;
+  }
+
+  private OWLIndividual readIndividual(ByteBuffer b) {
+    byte tag = b.get();
+    if (tag == ANONYMOUS_INDIVIDUAL) {
+      return this.factory.getOWLAnonymousIndividual(this.readString(b));
+    }
+    return this.factory.getOWLNamedIndividual(this.readIRI(b));
+  }
+
+  private OWLDataRange readDataRange(ByteBuffer b) {
+    byte tag = b.get();
+    switch (tag) {
+      case DATATYPE:
+        return this.factory.getOWLDatatype(this.readIRI(b));
+      case DATA_INTERSECTION_OF:
+        return this.factory.getOWLDataIntersectionOf(this.readDataRanges(b));
+      case DATA_UNION_OF:
+        return this.factory.getOWLDataUnionOf(this.readDataRanges(b));
+      case DATA_COMPLEMENT_OF:
+        return this.factory.getOWLDataComplementOf(this.readDataRange(b));
+      case DATA_ONE_OF:
+        {
+          int n = readNumber(b);
+          Set<OWLLiteral> values = new HashSet<>();
+          for (int i = 0; i < n; i++) {
+            values.add(this.readLiteral(b));
+          }
+          return this.factory.getOWLDataOneOf(values);
+        }
+      case DATATYPE_RESTRICTION:
+        {
+          OWLDatatype datatype = this.factory.getOWLDatatype(this.readIRI(b));
+          int n = readNumber(b);
+          Set<OWLFacetRestriction> facets = new HashSet<>();
+          for (int i = 0; i < n; i++) {
+            IRI facet = this.readIRI(b);
+            OWLLiteral value = this.readLiteral(b);
+            facets.add(this.factory.getOWLFacetRestriction(OWLFacet.getFacet(facet), value));
+          }
+          return this.factory.getOWLDatatypeRestriction(datatype, facets);
+        }
+      default:
+        throw new IllegalStateException("Unknown data range tag " + tag);
+    }
+  }
+
+  private Set<OWLDataRange> readDataRanges(ByteBuffer b) {
+    int n = readNumber(b);
+    Set<OWLDataRange> ranges = new HashSet<>();
+    for (int i = 0; i < n; i++) {
+      ranges.add(this.readDataRange(b));
+    }
+    return ranges;
+  }
+
+  private OWLLiteral readLiteral(ByteBuffer b) {
+    String literal = this.readString(b);
+    OWLDatatype datatype = this.factory.getOWLDatatype(this.readIRI(b));
+    String lang = this.readString(b);
+    if (!lang.isEmpty()) {
+      return this.factory.getOWLLiteral(literal, lang);
+    }
+    return this.factory.getOWLLiteral(literal, datatype);
+  }
+
+  private IRI readIRI(ByteBuffer b) {
+    int index = readNumber(b);
+    IRI iri = this.decodedIRIs[index];
+    if (iri == null) {
+      iri = IRI.create(this.getString(index));
+      this.decodedIRIs[index] = iri;
+    }
+    return iri;
+  }
+
+  private String readString(ByteBuffer b) {
+    return this.getString(readNumber(b));
+  }
+
+  private String getString(int index) {
+    String s = this.decodedStrings[index];
+    if (s == null) {
+      int offset = this.stringOffsets[index];
+      byte[] bytes = new byte[this.stringOffsets[index + 1] - offset];
+      this.strings.duplicate().position(offset).get(bytes);
+      s = new String(bytes, StandardCharsets.UTF_8);
+      this.decodedStrings[index] = s;
+    }
+    return s;
+  }
+
+  private static int readNumber(ByteBuffer b) {
+    int n = 0;
+    int shift = 0;
+    byte next;
+    do {
+      next = b.get();
+      n |= (next & 0x7f) << shift;
+      shift += 7;
+    } while ((next & 0x80) != 0);
+    return n;
+  }
+}
@@ -0,0 +1,40 @@
+package macro.ont;
+
+/** Formats in which axioms can be written (see {@link AxiomWriter}) */
+public enum OutputFormat {
+  OWL_XML("owlxml", "owl"),
+  FUNCTIONAL("functional", "ofn"),
+  N_TRIPLES("ntriples", "nt");
+
+  private final String name;
+  private final String extension;
+
+  OutputFormat(String name, String extension) {
+    this.name = name;
+    this.extension = extension;
+  }
+
+  // the name of the format on the command line
+  public String getName() {
+    return this.name;
+  }
+
+  public String getExtension() {
+    return this.extension;
+  }
+
+  // e.g., 'macrofication' -> 'macrofication.ofn.gz'
+  public String getFileName(String baseName, boolean gzip) {
+    return baseName + "." + this.extension + (gzip ? ".gz" : "");
+  }
+
+  // returns null if there is no format with the given name
+  public static OutputFormat fromName(String name) {
+    for (OutputFormat f : values()) {
+      if (f.name.equals(name)) {
+        return f;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,646 @@
+package macro.parser;
+
+import java.io.*;
+import java.util.*;
+import java.util.logging.*;
+import java.util.stream.*;
+import macro.ont.*;
+import macro.structure.*;
+import macro.structure.nodes.*;
+import org.jgrapht.*;
+import org.jgrapht.graph.*;
+import org.jgrapht.traverse.*;
+import org.semanticweb.owlapi.model.*;
+// import java.util.regex.Matcher;
+// import java.util.regex.Pattern;
+import org.semanticweb.owlapi.model.parameters.*;
+import org.semanticweb.owlapi.util.*;
+
+/** Class Expression Visitor */
+// Builds a single syntax tree for SyntaxTreeBuilder.
+// The tree under construction is the state of this visitor, so a new visitor is used for every
+// tree (and visitors are not shared).
+//
+// Trees are built iteratively in pre-order (see parse): visit methods do not recurse into
+// subexpressions but only add nodes for the direct subexpressions of the visited object. These
+// nodes are put onto an explicit stack and visited afterwards. So, the depth of the call stack does
+// not depend on the nesting depth of expressions.
+class SyntaxTreeVisitor implements OWLObjectVisitor {
+
+  // would have loved to have this ...
+  // however some logical axioms, e.g.,
+  // OWLAsymmetricObjectPropertyAxiom do not accept a logicalAxiomVisitor
+  // (even though it has a 'visit' method.. just great)
+  // private LogicalAxiomVisitor logicalAxiomVisitor;
+  private static final AxiomVisitor axiomVisitor = new AxiomVisitor();
+
+  // We could just make this a simple graph eh?
+  private SimpleDirectedGraph<SyntaxNode, DefaultEdge> syntaxTree;
+  // nodes are collected here if we build a compact syntax tree
+  // (in this case syntaxTree is null)
+  private CompactSyntaxTree.Builder compactTree;
+
+  private SyntaxNode root;
+
+  // the node of the object that is currently visited
+  private SyntaxNode current;
+  // nodes added by the current visit method (in pre-order)
+  private List<PendingNode> added;
+  // nodes that still need to be attached to the tree (the next node in pre-order on top)
+  private Deque<PendingNode> stack;
+
+  // a node that has been created but not yet attached to the tree
+  private static final class PendingNode {
+    private final SyntaxNode parent;
+    private final SyntaxNode node;
+    // the object whose subexpressions are the children of the node (null for leaves)
+    private final OWLObject object;
+
+    private PendingNode(SyntaxNode parent, SyntaxNode node, OWLObject object) {
+      this.parent = parent;
+      this.node = node;
+      this.object = object;
+    }
+  }
+
+  SyntaxTreeVisitor(SimpleDirectedGraph<SyntaxNode, DefaultEdge> syntaxTree) {
+    this(syntaxTree, null);
+  }
+
+  SyntaxTreeVisitor(CompactSyntaxTree.Builder compactTree) {
+    this(null, compactTree);
+  }
+
+  private SyntaxTreeVisitor(
+      SimpleDirectedGraph<SyntaxNode, DefaultEdge> syntaxTree,
+      CompactSyntaxTree.Builder compactTree) {
+    this.syntaxTree = syntaxTree;
+    this.compactTree = compactTree;
+    this.added = new ArrayList<>();
+    this.stack = new ArrayDeque<>();
+  }
+
+  SyntaxNode getRoot() {
+    return this.root;
+  }
+
+  // adds a node (and an edge from its parent) to the tree that is currently built
+  private void attach(SyntaxNode parent, SyntaxNode node) {
+    if (this.syntaxTree != null) {
+      this.syntaxTree.addVertex(node);
+      if (parent != null) {
+        this.syntaxTree.addEdge(parent, node);
+      }
+    } else {
+      this.compactTree.add(node, parent);
+    }
+  }
+
+  // builds the tree for the given root node (and the object it represents)
+  private void parse(SyntaxNode node, OWLObject object) {
+    this.root = node;
+    this.stack.push(new PendingNode(null, node, object));
+    while (!this.stack.isEmpty()) {
+      PendingNode next = this.stack.pop();
+      this.attach(next.parent, next.node);
+      if (next.object == null) {
+        continue;
+      }
+      this.current = next.node;
+      next.object.accept(this);
+      // push the added nodes in reverse order, so that they are attached in pre-order
+      for (int i = this.added.size() - 1; i >= 0; i--) {
+        this.stack.push(this.added.get(i));
+      }
+      this.added.clear();
+    }
+  }
+
+  // adds a node as a child of the current node
+  // (the node is attached to the tree and its object is visited later)
+  private void addChild(SyntaxNode node, OWLObject object) {
+    this.added.add(new PendingNode(this.current, node, object));
+  }
+
+  // ===============================================================
+  // ===================TERM BUILDER===========================
+  // ===============================================================
+
+  // the following methods build trees for terms (rooted at the node for the given term)
+
+  void parseTerm(OWLClassExpression ce) {
+    this.parse(new ClassNode(ce), ce);
+  }
+
+  void parseTerm(OWLDataRange dr) {
+    this.parse(new DataRangeNode(dr), dr);
+  }
+
+  void parseTerm(OWLFacetRestriction fr) {
+    this.parse(new FacetRestrictionNode(fr), fr);
+  }
+
+  void parseTerm(OWLIndividual i) {
+    this.parse(new IndividualNode(i), i);
+  }
+
+  void parseTerm(OWLLiteral l) {
+    this.parse(new LiteralNode(l), l);
+  }
+
+  void parseTerm(OWLPropertyExpression pe) {
+    this.parse(new PropertyNode(pe), pe);
+  }
+
+  // ===============================================================
+  // ===================AXIOM VISITOR===========================
+  // ===============================================================
+
+  void parseRoot(OWLAxiom axiom) {
+    SyntaxNode node = axiom.accept(axiomVisitor);
+    if (node != null) {
+      this.parse(node, axiom);
+    } else {
+      axiom.accept(this); // not supported (reported by the visitor)
+    }
+  }
+
+  public void visit(OWLAsymmetricObjectPropertyAxiom axiom) {
+    this.addNode(axiom.getProperty());
+  }
+
+  public void visit(OWLClassAssertionAxiom axiom) {
+    this.addNode(axiom.getClassExpression());
+    this.addNode(axiom.getIndividual());
+  }
+
+  // TODO: test this
+  public void visit(OWLDataPropertyAssertionAxiom axiom) {
+    this.addNode(axiom.getSubject());
+    this.addNode(axiom.getProperty());
+    this.addNode(axiom.getObject());
+  }
+
+  public void visit(OWLDataPropertyDomainAxiom axiom) {
+    this.addNode(axiom.getProperty());
+    this.addNode(axiom.getDomain());
+  }
+
+  public void visit(OWLDataPropertyRangeAxiom axiom) {
+    this.addNode(axiom.getProperty());
+    this.addNode(axiom.getRange());
+  }
+
+  public void visit(OWLDifferentIndividualsAxiom axiom) {
+    for (OWLIndividual i : axiom.getIndividuals()) {
+      this.addNode(i);
+    }
+  }
+
+  public void visit(OWLDisjointClassesAxiom axiom) { // TODO
+    Stream<OWLClassExpression> ops = axiom.operands();
+    Set<OWLClassExpression> classes = ops.collect(Collectors.toSet());
+    for (OWLClassExpression c : classes) {
+      this.addNode(c);
+    }
+  }
+
+  // TODO test this
+  public void visit(OWLDisjointDataPropertiesAxiom axiom) {
+    for (OWLDataPropertyExpression p : axiom.getProperties()) {
+      this.addNode(p);
+    }
+  }
+
+  // TODO test this
+  public void visit(OWLDisjointObjectPropertiesAxiom axiom) {
+    for (OWLObjectPropertyExpression p : axiom.getProperties()) {
+      this.addNode(p);
+    }
+  }
+
+  public void visit(OWLDisjointUnionAxiom axiom) { // TODO
+    OWLClassExpression union = axiom.getOWLClass();
+    this.addChild(new UnionNode(union), union);
+
+    Stream<OWLClassExpression> ops = axiom.operands();
+    Set<OWLClassExpression> operands = ops.collect(Collectors.toSet());
+    for (OWLClassExpression o : operands) {
+      this.addNode(o);
+    }
+  }
+
+  public void visit(OWLEquivalentClassesAxiom axiom) { // TODO
+    Stream<OWLClassExpression> ops = axiom.operands();
+    Set<OWLClassExpression> classes = ops.collect(Collectors.toSet());
+    for (OWLClassExpression c : classes) {
+      this.addNode(c);
+    }
+  }
+
+  public void visit(OWLEquivalentDataPropertiesAxiom axiom) {
+    for (OWLDataPropertyExpression p : axiom.getProperties()) {
+      this.addNode(p);
+    }
+  }
+
+  public void visit(OWLEquivalentObjectPropertiesAxiom axiom) {
+    for (OWLObjectPropertyExpression p : axiom.getProperties()) {
+      this.addNode(p);
+    }
+  }
+
+  public void visit(OWLFunctionalDataPropertyAxiom axiom) {
+    this.addNode(axiom.getProperty());
+  }
+
+  public void visit(OWLFunctionalObjectPropertyAxiom axiom) {
+    this.addNode(axiom.getProperty());
+  }
+
+  // TODO
+  public void visit(OWLHasKeyAxiom axiom) {
+    ;
+  }
+
+  public void visit(OWLInverseFunctionalObjectPropertyAxiom axiom) {
+    this.addNode(axiom.getProperty());
+  }
+
+  public void visit(OWLInverseObjectPropertiesAxiom axiom) {
+    for (OWLObjectPropertyExpression p : axiom.getProperties()) {
+      this.addNode(p);
+    }
+  }
+
+  public void visit(OWLIrreflexiveObjectPropertyAxiom axiom) {
+    this.addNode(axiom.getProperty());
+  }
+
+  public void visit(OWLNegativeDataPropertyAssertionAxiom axiom) {
+    this.addNode(axiom.getSubject());
+    this.addNode(axiom.getProperty());
+    this.addNode(axiom.getObject());
+  }
+
+  // TODO test this
+  public void visit(OWLNegativeObjectPropertyAssertionAxiom axiom) {
+    this.addNode(axiom.getSubject());
+    this.addNode(axiom.getProperty());
+    this.addNode(axiom.getObject());
+  }
+
+  public void visit(OWLObjectPropertyAssertionAxiom axiom) {
+    this.addNode(axiom.getSubject());
+    this.addNode(axiom.getProperty());
+    this.addNode(axiom.getObject());
+  }
+
+  public void visit(OWLObjectPropertyDomainAxiom axiom) {
+    this.addNode(axiom.getProperty());
+    this.addNode(axiom.getDomain());
+  }
+
+  public void visit(OWLObjectPropertyRangeAxiom axiom) {
+    this.addNode(axiom.getProperty());
+    this.addNode(axiom.getRange());
+  }
+
+  public void visit(OWLReflexiveObjectPropertyAxiom axiom) {
+    this.addNode(axiom.getProperty());
+  }
+
+  public void visit(OWLSameIndividualAxiom axiom) {
+    for (OWLIndividual i : axiom.getIndividuals()) {
+      this.addNode(i);
+    }
+  }
+
+  public void visit(OWLSubClassOfAxiom axiom) {
+    OWLClassExpression subClass = axiom.getSubClass();
+    this.addChild(new SubClassOfNode(subClass), subClass);
+
+    OWLClassExpression superClass = axiom.getSuperClass();
+    this.addChild(new SuperClassOfNode(superClass), superClass);
+  }
+
+  public void visit(OWLSubDataPropertyOfAxiom axiom) {
+    this.addNode(axiom.getSubProperty());
+    this.addNode(axiom.getSuperProperty());
+  }
+
+  public void visit(OWLSubObjectPropertyOfAxiom axiom) {
+    this.addNode(axiom.getSubProperty());
+    this.addNode(axiom.getSuperProperty());
+  }
+
+  // TODO: we might need a SyntaxNode for this? - how do you represent chains?
+  public void visit(OWLSubPropertyChainOfAxiom axiom) {
+    SyntaxNode parent = this.current;
+
+    List<OWLObjectPropertyExpression> chain = axiom.getPropertyChain();
+    PropertyChainNode node = new PropertyChainNode(chain);
+    this.addChild(node, null);
+
+    // the Object properties should be children of the PropertyChainNode
+    // (they are added right after it, so they are attached before the super property)
+    this.current = node;
+    for (OWLObjectPropertyExpression p : chain) {
+      this.addNode(p);
+    }
+
+    this.current = parent;
+    this.addNode(axiom.getSuperProperty());
+  }
+
+  public void visit(OWLSymmetricObjectPropertyAxiom axiom) {
+    this.addNode(axiom.getProperty());
+  }
+
+  public void visit(OWLTransitiveObjectPropertyAxiom axiom) {
+    this.addNode(axiom.getProperty());
+  }
+
+  public void visit(SWRLRule node) {
+    System.out.println("Parsed a SWRLRule - cannot be handled");
+  }
+
+  public void doDefault(Object object) {
+    System.out.println("Parsed an Object in 'doDefault' - cannot be handled");
+  }
+
+  public void getDefaultReturnValue(Object object) {
+    System.out.println("Parsed an Object in 'getDefaultReturnValue' - cannot be handled");
+  }
+
+  public void handleDefault(Object c) {
+    System.out.println("Parsed an Object in 'handleDefault' - cannot be handled");
+  }
+
+  // -----------------
+  public void visit(OWLAnnotationAssertionAxiom axiom) {
+    ;
+  }
+
+  public void visit(OWLAnnotationPropertyDomainAxiom axiom) {
+    ;
+  }
+
+  public void visit(OWLAnnotationPropertyRangeAxiom axiom) {
+    ;
+  }
+
+  public void visit(OWLSubAnnotationPropertyOfAxiom axiom) {
+    ;
+  }
+
+  // ===============================================================
+  // ============CLASS EXPRESSIONS VISITOR==========================
+  // ===============================================================
+  //
+  void parseRoot(OWLClassExpression ce) {
+    this.parse(new ClassNode(ce), ce);
+  }
+
+  private void addNode(OWLClassExpression expr) {
+    this.addChild(new ClassNode(expr), expr);
+  }
+
+  // adds a leaf for the cardinality of a restriction
+  private void addNode(int cardinality) {
+    this.addChild(new CardinalityNode(cardinality), null);
+  }
+
+  public void visit(OWLClass ce) {
+    // no substructure
+  }
+
+  public void visit(OWLDataAllValuesFrom ce) {
+    // NB: OWL's structural specification says there can be n properties
+    // however, the OWL API seems to support only n=1?
+
+    // create node for data property (leaf node)
+    this.addNode(ce.getProperty());
+
+    // create node for data range (which has structure..)
+    this.addNode(ce.getFiller());
+  }
+
+  public void visit(OWLDataExactCardinality ce) {
+    // integer
+    this.addNode(ce.getCardinality());
+
+    // DataPropertyExpression
+    this.addNode(ce.getProperty());
+
+    // Datarange
+    OWLDataRange dataRange = ce.getFiller();
+    if (dataRange != null) {
+      this.addNode(dataRange);
+    }
+  }
+
+  public void visit(OWLDataHasValue ce) {
+    // data property expression
+    this.addNode(ce.getProperty());
+
+    // literal
+    this.addNode(ce.getFiller());
+  }
+
+  public void visit(OWLDataMaxCardinality ce) {
+    // integer
+    this.addNode(ce.getCardinality());
+
+    // DataPropertyExpression
+    this.addNode(ce.getProperty());
+
+    // Datarange
+    OWLDataRange dataRange = ce.getFiller();
+    if (dataRange != null) {
+      this.addNode(dataRange);
+    }
+  }
+
+  public void visit(OWLDataMinCardinality ce) {
+    // integer
+    this.addNode(ce.getCardinality());
+
+    // DataPropertyExpression
+    this.addNode(ce.getProperty());
+
+    // Datarange
+    OWLDataRange dataRange = ce.getFiller();
+    if (dataRange != null) {
+      this.addNode(dataRange);
+    }
+  }
+
+  public void visit(OWLDataSomeValuesFrom ce) {
+    this.addNode(ce.getProperty());
+
+    // create node for data range (which has structure..)
+    this.addNode(ce.getFiller());
+  }
+
+  public void visit(OWLObjectOneOf ce) {
+    for (OWLIndividual i : ce.getIndividuals()) {
+      this.addNode(i);
+    }
+  }
+
+  public void visit(OWLObjectHasSelf ce) {
+    this.addNode(ce.getProperty());
+  }
+
+  public void visit(OWLObjectHasValue ce) {
+    this.addNode(ce.getFiller());
+    this.addNode(ce.getProperty());
+  }
+
+  public void visit(OWLObjectAllValuesFrom ce) {
+    this.addNode(ce.getProperty());
+    this.addNode(ce.getFiller()); // subexpression
+  }
+
+  public void visit(OWLObjectComplementOf ce) {
+    this.addNode(ce.getOperand());
+  }
+
+  public void visit(OWLObjectExactCardinality ce) {
+    // add child node for cardinality (which is a leaf)
+    this.addNode(ce.getCardinality());
+    this.addNode(ce.getProperty());
+    this.addNode(ce.getFiller());
+  }
+
+  public void visit(OWLObjectIntersectionOf ce) {
+    for (OWLClassExpression o : ce.getOperands()) {
+      this.addNode(o);
+    }
+  }
+
+  public void visit(OWLObjectMaxCardinality ce) {
+    this.addNode(ce.getCardinality());
+    this.addNode(ce.getProperty());
+    this.addNode(ce.getFiller());
+  }
+
+  public void visit(OWLObjectMinCardinality ce) {
+    this.addNode(ce.getCardinality());
+    this.addNode(ce.getProperty());
+    this.addNode(ce.getFiller());
+  }
+
+  public void visit(OWLObjectSomeValuesFrom ce) {
+    this.addNode(ce.getProperty());
+    this.addNode(ce.getFiller());
+  }
+
+  public void visit(OWLObjectUnionOf ce) {
+    for (OWLClassExpression o : ce.getOperands()) {
+      this.addNode(o);
+    }
+  }
+
+  // ===============================================================
+  // ============Property EXPRESSIONS VISITOR==========================
+  // ===============================================================
+  private void addNode(OWLPropertyExpression expr) {
+    this.addChild(new PropertyNode(expr), expr);
+  }
+
+  public void visit(OWLObjectInverseOf property) {
+    this.addNode(property.getInverse());
+  }
+
+  public void visit(OWLObjectProperty property) {
+    // no substructure
+  }
+
+  public void visit(OWLDataProperty property) {
+    ;
+  }
+
+  // TODO
+  public void visit(OWLAnnotationProperty property) {
+    ;
+  }
+
+  // ===============================================================
+  // ============Individual VISITOR==========================
+  // ===============================================================
+  private void addNode(OWLIndividual i) {
+    this.addChild(new IndividualNode(i), i);
+  }
+
+  public void visit(OWLAnonymousIndividual individual) {
+    // no substructure
+  }
+
+  public void visit(OWLNamedIndividual individual) {
+    // no substructure
+  }
+
+  // ===============================================================
+  // ============Data Range VISITOR==========================
+  // ===============================================================
+  private void addNode(OWLDataRange r) {
+    this.addChild(new DataRangeNode(r), r);
+  }
+
+  private void addNode(OWLLiteral l) {
+    this.addChild(new LiteralNode(l), l);
+  }
+
+  private void addNode(OWLFacetRestriction r) {
+    this.addChild(new FacetRestrictionNode(r), r);
+  }
+
+  public void visit(OWLDataComplementOf node) {
+    this.addNode(node.getDataRange());
+  }
+
+  public void visit(OWLDataIntersectionOf node) {
+    for (OWLDataRange r : node.getOperands()) {
+      this.addNode(r);
+    }
+  }
+
+  public void visit(OWLDataOneOf node) {
+    // points to a set of literals
+    for (OWLLiteral l : node.getValues()) {
+      this.addNode(l);
+    }
+  }
+
+  public void visit(OWLDatatypeRestriction node) {
+    // data type
+    this.addNode(node.getDatatype()); // is a datarange
+
+    // N (facests+restriction value)
+    for (OWLFacetRestriction r : node.getFacetRestrictions()) {
+      this.addNode(r);
+    }
+  }
+
+  public void visit(OWLDataUnionOf node) {
+    for (OWLDataRange r : node.getOperands()) {
+      this.addNode(r);
+    }
+  }
+
+  public void visit(OWLDatatype node) {
+    ;
+  }
+
+  public void visit(OWLLiteral node) {
+    ;
+  }
+
+  public void visit(OWLFacetRestriction node) {
+    // pull out facets? doesn't accept visitors - is not an OWLObject ...
+    // OWLFacet facet = node.getFacet(); ... woul
+    this.addNode(node.getFacetValue());
+  }
+}
@@ -0,0 +1,537 @@
+package macro.parser;
+
+import java.util.*;
+import org.semanticweb.owlapi.model.*;
+
+/** Term Size Visitor */
+// Computes the size of a term, i.e., the number of nodes of its syntax tree, without building the
+// syntax tree. Every visit method mirrors the corresponding method of the SyntaxTreeBuilder:
+// a term's size is 1 (for its own node) plus the sizes of the subterms for which the
+// SyntaxTreeBuilder creates child nodes (including CardinalityNodes and PropertyChainNodes).
+//
+// Sizes of complex class expressions and data ranges are memoised, so a subterm that occurs in
+// many axioms is only measured once.
+public class TermSizeVisitor
+    implements OWLAxiomVisitor,
+        OWLClassExpressionVisitor,
+        OWLPropertyExpressionVisitor,
+        OWLIndividualVisitor,
+        OWLDataRangeVisitor,
+        OWLDataVisitor {
+
+  // the size computed by the last visit
+  private int size;
+
+  private Map<OWLObject, Integer> cache;
+
+  public TermSizeVisitor() {
+    this.cache = new HashMap<>();
+  }
+
+  public int getSize(OWLAxiom axiom) {
+    this.size = 0;
+    axiom.accept(this);
+    return this.size;
+  }
+
+  public int getSize(OWLClassExpression ce) {
+    if (!ce.isAnonymous()) {
+      return 1;
+    }
+    Integer cached = this.cache.get(ce);
+    if (cached != null) {
+      return cached;
+    }
+    ce.accept(this);
+    int s = this.size;
+    this.cache.put(ce, s);
+    return s;
+  }
+
+  public int getSize(OWLDataRange dr) {
+    if (dr.isOWLDatatype()) {
+      return 1;
+    }
+    Integer cached = this.cache.get(dr);
+    if (cached != null) {
+      return cached;
+    }
+    dr.accept(this);
+    int s = this.size;
+    this.cache.put(dr, s);
+    return s;
+  }
+
+  public int getSize(OWLPropertyExpression pe) {
+    pe.accept(this);
+    return this.size;
+  }
+
+  public int getSize(OWLIndividual i) {
+    return 1;
+  }
+
+  public int getSize(OWLLiteral l) {
+    return 1;
+  }
+
+  public int getSize(OWLFacetRestriction fr) {
+    fr.accept(this);
+    return this.size;
+  }
+
+  public void clearCache() {
+    this.cache.clear();
+  }
+
+  // ===============================================================
+  // ===================AXIOM VISITOR===========================
+  // ===============================================================
+
+  public void visit(OWLAsymmetricObjectPropertyAxiom axiom) {
+    this.size = 1 + getSize(axiom.getProperty());
+  }
+
+  public void visit(OWLClassAssertionAxiom axiom) {
+    int s = 1;
+    s += getSize(axiom.getClassExpression());
+    s += getSize(axiom.getIndividual());
+    this.size = s;
+  }
+
+  public void visit(OWLDataPropertyAssertionAxiom axiom) {
+    int s = 1;
+    s += getSize(axiom.getSubject());
+    s += getSize(axiom.getProperty());
+    s += getSize(axiom.getObject());
+    this.size = s;
+  }
+
+  public void visit(OWLDataPropertyDomainAxiom axiom) {
+    int s = 1;
+    s += getSize(axiom.getProperty());
+    s += getSize(axiom.getDomain());
+    this.size = s;
+  }
+
+  public void visit(OWLDataPropertyRangeAxiom axiom) {
+    int s = 1;
+    s += getSize(axiom.getProperty());
+    s += getSize(axiom.getRange());
+    this.size = s;
+  }
+
+  public void visit(OWLDifferentIndividualsAxiom axiom) {
+    this.size = 1 + axiom.getIndividuals().size();
+  }
+
+  public void visit(OWLDisjointClassesAxiom axiom) {
+    int s = 1;
+    for (OWLClassExpression c : axiom.getClassExpressions()) {
+      s += getSize(c);
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLDisjointDataPropertiesAxiom axiom) {
+    int s = 1;
+    for (OWLDataPropertyExpression p : axiom.getProperties()) {
+      s += getSize(p);
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLDisjointObjectPropertiesAxiom axiom) {
+    int s = 1;
+    for (OWLObjectPropertyExpression p : axiom.getProperties()) {
+      s += getSize(p);
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLDisjointUnionAxiom axiom) {
+    int s = 1;
+    s += getSize(axiom.getOWLClass()); // UnionNode
+    for (OWLClassExpression o : axiom.getClassExpressions()) {
+      s += getSize(o);
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLEquivalentClassesAxiom axiom) {
+    int s = 1;
+    for (OWLClassExpression c : axiom.getClassExpressions()) {
+      s += getSize(c);
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLEquivalentDataPropertiesAxiom axiom) {
+    int s = 1;
+    for (OWLDataPropertyExpression p : axiom.getProperties()) {
+      s += getSize(p);
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLEquivalentObjectPropertiesAxiom axiom) {
+    int s = 1;
+    for (OWLObjectPropertyExpression p : axiom.getProperties()) {
+      s += getSize(p);
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLFunctionalDataPropertyAxiom axiom) {
+    this.size = 1 + getSize(axiom.getProperty());
+  }
+
+  public void visit(OWLFunctionalObjectPropertyAxiom axiom) {
+    this.size = 1 + getSize(axiom.getProperty());
+  }
+
+  // NB: the SyntaxTreeBuilder only creates a root node for HasKey axioms
+  public void visit(OWLHasKeyAxiom axiom) {
+    this.size = 1;
+  }
+
+  public void visit(OWLInverseFunctionalObjectPropertyAxiom axiom) {
+    this.size = 1 + getSize(axiom.getProperty());
+  }
+
+  public void visit(OWLInverseObjectPropertiesAxiom axiom) {
+    int s = 1;
+    for (OWLObjectPropertyExpression p : axiom.getProperties()) {
+      s += getSize(p);
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLIrreflexiveObjectPropertyAxiom axiom) {
+    this.size = 1 + getSize(axiom.getProperty());
+  }
+
+  public void visit(OWLNegativeDataPropertyAssertionAxiom axiom) {
+    int s = 1;
+    s += getSize(axiom.getSubject());
+    s += getSize(axiom.getProperty());
+    s += getSize(axiom.getObject());
+    this.size = s;
+  }
+
+  public void visit(OWLNegativeObjectPropertyAssertionAxiom axiom) {
+    int s = 1;
+    s += getSize(axiom.getSubject());
+    s += getSize(axiom.getProperty());
+    s += getSize(axiom.getObject());
+    this.size = s;
+  }
+
+  public void visit(OWLObjectPropertyAssertionAxiom axiom) {
+    int s = 1;
+    s += getSize(axiom.getSubject());
+    s += getSize(axiom.getProperty());
+    s += getSize(axiom.getObject());
+    this.size = s;
+  }
+
+  public void visit(OWLObjectPropertyDomainAxiom axiom) {
+    int s = 1;
+    s += getSize(axiom.getProperty());
+    s += getSize(axiom.getDomain());
+    this.size = s;
+  }
+
+  public void visit(OWLObjectPropertyRangeAxiom axiom) {
+    int s = 1;
+    s += getSize(axiom.getProperty());
+    s += getSize(axiom.getRange());
+    this.size = s;
+  }
+
+  public void visit(OWLReflexiveObjectPropertyAxiom axiom) {
+    this.size = 1 + getSize(axiom.getProperty());
+  }
+
+  public void visit(OWLSameIndividualAxiom axiom) {
+    this.size = 1 + axiom.getIndividuals().size();
+  }
+
+  public void visit(OWLSubClassOfAxiom axiom) {
+    int s = 1;
+    s += getSize(axiom.getSubClass()); // SubClassOfNode
+    s += getSize(axiom.getSuperClass()); // SuperClassOfNode
+    this.size = s;
+  }
+
+  public void visit(OWLSubDataPropertyOfAxiom axiom) {
+    int s = 1;
+    s += getSize(axiom.getSubProperty());
+    s += getSize(axiom.getSuperProperty());
+    this.size = s;
+  }
+
+  public void visit(OWLSubObjectPropertyOfAxiom axiom) {
+    int s = 1;
+    s += getSize(axiom.getSubProperty());
+    s += getSize(axiom.getSuperProperty());
+    this.size = s;
+  }
+
+  public void visit(OWLSubPropertyChainOfAxiom axiom) {
+    int s = 1;
+    s += 1; // PropertyChainNode
+    for (OWLObjectPropertyExpression p : axiom.getPropertyChain()) {
+      s += getSize(p);
+    }
+    s += getSize(axiom.getSuperProperty());
+    this.size = s;
+  }
+
+  public void visit(OWLSymmetricObjectPropertyAxiom axiom) {
+    this.size = 1 + getSize(axiom.getProperty());
+  }
+
+  public void visit(OWLTransitiveObjectPropertyAxiom axiom) {
+    this.size = 1 + getSize(axiom.getProperty());
+  }
+
+  // NB: the SyntaxTreeBuilder does not create any nodes for SWRL rules
+  // and axioms without a visit method (e.g. declarations)
+  public void visit(SWRLRule node) {
+    this.size = 0;
+  }
+
+  public void doDefault(Object object) {
+    this.size = 0;
+  }
+
+  public void visit(OWLAnnotationAssertionAxiom axiom) {
+    this.size = 1;
+  }
+
+  public void visit(OWLAnnotationPropertyDomainAxiom axiom) {
+    this.size = 1;
+  }
+
+  public void visit(OWLAnnotationPropertyRangeAxiom axiom) {
+    this.size = 1;
+  }
+
+  public void visit(OWLSubAnnotationPropertyOfAxiom axiom) {
+    this.size = 1;
+  }
+
+  // ===============================================================
+  // ============CLASS EXPRESSIONS VISITOR==========================
+  // ===============================================================
+
+  public void visit(OWLClass ce) {
+    this.size = 1;
+  }
+
+  public void visit(OWLDataAllValuesFrom ce) {
+    int s = 1;
+    s += 1; // the data property is a leaf (it is not visited)
+    s += getSize(ce.getFiller());
+    this.size = s;
+  }
+
+  public void visit(OWLDataExactCardinality ce) {
+    int s = 1;
+    s += 1; // CardinalityNode
+    s += getSize(ce.getProperty());
+    if (ce.getFiller() != null) {
+      s += getSize(ce.getFiller());
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLDataHasValue ce) {
+    int s = 1;
+    s += getSize(ce.getProperty());
+    s += getSize(ce.getFiller());
+    this.size = s;
+  }
+
+  public void visit(OWLDataMaxCardinality ce) {
+    int s = 1;
+    s += 1; // CardinalityNode
+    s += getSize(ce.getProperty());
+    if (ce.getFiller() != null) {
+      s += getSize(ce.getFiller());
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLDataMinCardinality ce) {
+    int s = 1;
+    s += 1; // CardinalityNode
+    s += getSize(ce.getProperty());
+    if (ce.getFiller() != null) {
+      s += getSize(ce.getFiller());
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLDataSomeValuesFrom ce) {
+    int s = 1;
+    s += 1; // the data property is a leaf (it is not visited)
+    s += getSize(ce.getFiller());
+    this.size = s;
+  }
+
+  public void visit(OWLObjectOneOf ce) {
+    this.size = 1 + ce.getIndividuals().size();
+  }
+
+  public void visit(OWLObjectHasSelf ce) {
+    this.size = 1 + getSize(ce.getProperty());
+  }
+
+  public void visit(OWLObjectHasValue ce) {
+    int s = 1;
+    s += 1; // the individual is a leaf (it is not visited)
+    s += getSize(ce.getProperty());
+    this.size = s;
+  }
+
+  public void visit(OWLObjectAllValuesFrom ce) {
+    int s = 1;
+    s += getSize(ce.getProperty());
+    s += getSize(ce.getFiller());
+    this.size = s;
+  }
+
+  public void visit(OWLObjectComplementOf ce) {
+    this.size = 1 + getSize(ce.getOperand());
+  }
+
+  public void visit(OWLObjectExactCardinality ce) {
+    int s = 1;
+    s += 1; // CardinalityNode
+    s += getSize(ce.getProperty());
+    s += getSize(ce.getFiller());
+    this.size = s;
+  }
+
+  public void visit(OWLObjectIntersectionOf ce) {
+    int s = 1;
+    for (OWLClassExpression o : ce.getOperands()) {
+      s += getSize(o);
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLObjectMaxCardinality ce) {
+    int s = 1;
+    s += 1; // CardinalityNode
+    s += getSize(ce.getProperty());
+    s += getSize(ce.getFiller());
+    this.size = s;
+  }
+
+  public void visit(OWLObjectMinCardinality ce) {
+    int s = 1;
+    s += 1; // CardinalityNode
+    s += getSize(ce.getProperty());
+    s += getSize(ce.getFiller());
+    this.size = s;
+  }
+
+  public void visit(OWLObjectSomeValuesFrom ce) {
+    int s = 1;
+    s += getSize(ce.getProperty());
+    s += getSize(ce.getFiller());
+    this.size = s;
+  }
+
+  public void visit(OWLObjectUnionOf ce) {
+    int s = 1;
+    for (OWLClassExpression o : ce.getOperands()) {
+      s += getSize(o);
+    }
+    this.size = s;
+  }
+
+  // ===============================================================
+  // ============Property EXPRESSIONS VISITOR==========================
+  // ===============================================================
+
+  public void visit(OWLObjectInverseOf property) {
+    this.size = 1 + getSize(property.getInverse());
+  }
+
+  public void visit(OWLObjectProperty property) {
+    this.size = 1;
+  }
+
+  public void visit(OWLDataProperty property) {
+    this.size = 1;
+  }
+
+  public void visit(OWLAnnotationProperty property) {
+    this.size = 1;
+  }
+
+  // ===============================================================
+  // ============Individual VISITOR==========================
+  // ===============================================================
+
+  public void visit(OWLAnonymousIndividual individual) {
+    this.size = 1;
+  }
+
+  public void visit(OWLNamedIndividual individual) {
+    this.size = 1;
+  }
+
+  // ===============================================================
+  // ============Data Range VISITOR==========================
+  // ===============================================================
+
+  public void visit(OWLDataComplementOf node) {
+    this.size = 1 + getSize(node.getDataRange());
+  }
+
+  public void visit(OWLDataIntersectionOf node) {
+    int s = 1;
+    for (OWLDataRange r : node.getOperands()) {
+      s += getSize(r);
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLDataOneOf node) {
+    this.size = 1 + node.getValues().size();
+  }
+
+  public void visit(OWLDatatypeRestriction node) {
+    int s = 1;
+    s += getSize(node.getDatatype());
+    for (OWLFacetRestriction r : node.getFacetRestrictions()) {
+      s += getSize(r);
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLDataUnionOf node) {
+    int s = 1;
+    for (OWLDataRange r : node.getOperands()) {
+      s += getSize(r);
+    }
+    this.size = s;
+  }
+
+  public void visit(OWLDatatype node) {
+    this.size = 1;
+  }
+
+  public void visit(OWLLiteral node) {
+    this.size = 1;
+  }
+
+  public void visit(OWLFacetRestriction node) {
+    this.size = 1 + getSize(node.getFacetValue());
+  }
+}
@@ -41,6 +41,7 @@ public class TermTreeBuilder {
       CardinalityNode cn = (CardinalityNode) node;
       CardinalityNode copy = new CardinalityNode(cn.getCardinality());
       syntaxTree.addVertex(copy);
+      copy.setHash(cn.getHash());
       return new SyntaxTree(syntaxTree, copy);
     }
 
@@ -77,7 +78,9 @@ public class TermTreeBuilder {
         syntaxTree.addEdge(copy, root);
       }
 
-      return new SyntaxTree(syntaxTree, copy);
+      SyntaxTree chain = new SyntaxTree(syntaxTree, copy);
+      StructuralHash.hash(chain);
+      return chain;
     }
 
     if (node instanceof FacetRestrictionNode) {
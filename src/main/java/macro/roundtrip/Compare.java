@@ -33,11 +33,11 @@ public class Compare {
   public static void run(String ont1, String ont2) throws Exception {
 
     File ontFile = new File(ont1);
-    OntologyLoader ontLoader = new OntologyLoader(ontFile, true);
+    OntologyLoader ontLoader = new OntologyLoader(ontFile, true, false);
     OWLOntology ontology1 = ontLoader.getOntology();
 
     File ontFile2 = new File(ont2);
-    OntologyLoader ontLoader2 = new OntologyLoader(ontFile2, true);
+    OntologyLoader ontLoader2 = new OntologyLoader(ontFile2, true, false);
     OWLOntology ontology2 = ontLoader2.getOntology();
 
     Set<OWLAxiom> axioms1 = getClassExpressionAxioms(ontology1);
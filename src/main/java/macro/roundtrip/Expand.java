@@ -16,6 +16,7 @@ import org.jgrapht.*;
 import org.jgrapht.graph.*;
 import org.jgrapht.traverse.*;
 import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.*;
 import org.semanticweb.owlapi.util.*;
 
 /** Macrofies an ontology */
@@ -32,13 +33,20 @@ public class Expand {
 
   public static void run(String ontFilePath, String definitionPath, String output)
       throws Exception {
+    run(ontFilePath, definitionPath, output, OutputFormat.OWL_XML, false);
+  }
+
+  // the output is written in the given format (and compressed with gzip if 'gzip' is true)
+  public static void run(
+      String ontFilePath, String definitionPath, String output, OutputFormat format, boolean gzip)
+      throws Exception {
 
     File ontFile = new File(ontFilePath);
-    OntologyLoader ontLoader = new OntologyLoader(ontFile, true);
+    OntologyLoader ontLoader = new OntologyLoader(ontFile, true, false);
     OWLOntology macrofication = ontLoader.getOntology();
 
     File defFile = new File(definitionPath);
-    OntologyLoader ontLoader2 = new OntologyLoader(defFile, true);
+    OntologyLoader ontLoader2 = new OntologyLoader(defFile, true, false);
     OWLOntology definitions = ontLoader2.getOntology();
 
     String outputPath = output;
@@ -61,22 +69,30 @@ public class Expand {
     // expand
     SyntaxTreeBuilder builder = new SyntaxTreeBuilder();
     OWLRewriter rewriter = new OWLRewriter();
-    Set<OWLAxiom> originalOntology = new HashSet<>();
-    for (OWLAxiom a : macrofication.getLogicalAxioms()) {
+    Set<OWLAxiom> originalOntology =
+        new HashSet<>(macrofication.getLogicalAxioms(Imports.INCLUDED));
+
+    // only axioms that contain macros need to be expanded
+    AxiomIndex index = new AxiomIndex();
+    for (OWLAxiom a : originalOntology) {
+      index.add(a);
+    }
+    for (OWLAxiom a : index.getAxiomsWithClasses(macro2expansion.keySet())) {
 
       SyntaxTree round = builder.build(a);
 
-      Set<OWLClass> namedClasses = a.getClassesInSignature();
-      for (OWLClass c : namedClasses) {
-        if (macro2expansion.containsKey(c)) {
-          rewriter.rewrite(round, c, macro2expansion.get(c));
-        }
-      }
+      // NB: definitions are fixed-point expansions, so a single pass suffices
+      rewriter.expandAll(round, macro2expansion);
       AxiomNode node = (AxiomNode) round.getRoot();
       OWLAxiom roundAxiom = node.getAxiom();
+      originalOntology.remove(a);
       originalOntology.add(roundAxiom);
     }
     // save
-    OntologySaver.saveAxioms(originalOntology, outputPath + "/expandedOntology.owl");
+    OntologySaver.saveAxioms(
+        originalOntology,
+        outputPath + "/" + format.getFileName("expandedOntology", gzip),
+        format,
+        gzip);
   }
 }
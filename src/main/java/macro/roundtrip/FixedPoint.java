@@ -31,9 +31,15 @@ public class FixedPoint {
   }
 
   public static void run(String macroExpansions, String output) throws Exception {
+    run(macroExpansions, output, OutputFormat.OWL_XML, false);
+  }
+
+  // the output is written in the given format (and compressed with gzip if 'gzip' is true)
+  public static void run(String macroExpansions, String output, OutputFormat format, boolean gzip)
+      throws Exception {
 
     File ontFile = new File(macroExpansions);
-    OntologyLoader ontLoader = new OntologyLoader(ontFile, true);
+    OntologyLoader ontLoader = new OntologyLoader(ontFile, true, false);
     OWLOntology expansions = ontLoader.getOntology();
 
     String outputPath = output;
@@ -54,6 +60,10 @@ public class FixedPoint {
       OWLEquivalentClassesAxiom a = factory.getOWLEquivalentClassesAxiom(macro, evaluation);
       evaluations.add(a);
     }
-    OntologySaver.saveAxioms(evaluations, outputPath + "/fixedpointExpansions.owl");
+    OntologySaver.saveAxioms(
+        evaluations,
+        outputPath + "/" + format.getFileName("fixedpointExpansions", gzip),
+        format,
+        gzip);
   }
 }
@@ -31,8 +31,33 @@ public class Macrofy {
   }
 
   public static void run(String ontFilePath, String output) throws Exception {
+    run(ontFilePath, output, null);
+  }
+
+  // the imports closure of the ontology is loaded by the given loader (if not null)
+  public static void run(String ontFilePath, String output, ImportsClosureLoader importsLoader)
+      throws Exception {
+    run(ontFilePath, output, importsLoader, OutputFormat.OWL_XML, false);
+  }
+
+  /**
+   * Macrofies an ontology.
+   *
+   * @param ontFilePath the path to the ontology file
+   * @param output the path to the output folder
+   * @param importsLoader the loader for the imports closure of the ontology (or null)
+   * @param format the format of the output files
+   * @param gzip if true, the output files are compressed with gzip
+   */
+  public static void run(
+      String ontFilePath,
+      String output,
+      ImportsClosureLoader importsLoader,
+      OutputFormat format,
+      boolean gzip)
+      throws Exception {
     File ontFile = new File(ontFilePath);
-    OntologyLoader ontLoader = new OntologyLoader(ontFile, true);
+    OntologyLoader ontLoader = new OntologyLoader(ontFile, importsLoader);
     OWLOntology ont = ontLoader.getOntology();
 
     String ontologyName = Paths.get(ontFilePath).getFileName().toString();
@@ -46,38 +71,49 @@ public class Macrofy {
     Set<AxiomMacrofication> macrofication = system.getMacrofication();
     MacroDefinitions macroDefinitions = system.getMacroDefinitions();
 
-    // materialise definitions
-    // (1) macro -> evaluation
-    Map<OWLClassExpression, OWLClassExpression> macro2evaluation =
-        macroDefinitions.getMacro2Evaluation();
-    Set<OWLAxiom> evaluations = new HashSet<>();
-    for (Map.Entry<OWLClassExpression, OWLClassExpression> set : macro2evaluation.entrySet()) {
-
-      OWLClassExpression macro = set.getKey();
-      OWLClassExpression evaluation = set.getValue();
-      OWLEquivalentClassesAxiom a = factory.getOWLEquivalentClassesAxiom(macro, evaluation);
-      evaluations.add(a);
-    }
-    OntologySaver.saveAxioms(evaluations, outputPath + "/macroEvaluations.owl");
-
-    // (2) macro -> expansion
-    Map<OWLClassExpression, OWLClassExpression> macro2expansion =
-        macroDefinitions.getMacro2Expansion();
-    Set<OWLAxiom> expansions = new HashSet<>();
-    for (Map.Entry<OWLClassExpression, OWLClassExpression> set : macro2expansion.entrySet()) {
-
-      OWLClassExpression macro = set.getKey();
-      OWLClassExpression expansion = set.getValue();
-      OWLEquivalentClassesAxiom a = factory.getOWLEquivalentClassesAxiom(macro, expansion);
-      expansions.add(a);
-    }
-    OntologySaver.saveAxioms(expansions, outputPath + "/macroExpansions.owl");
-
-    // (3) macrofication
-    Set<OWLAxiom> macroficationOntology = new HashSet<>();
-    for (AxiomMacrofication m : macrofication) {
-      macroficationOntology.add(m.getMinimizedAxiom());
+    // the three files are written concurrently (each while the next one is being computed)
+    try (ConcurrentSaver saver = new ConcurrentSaver()) {
+
+      // materialise definitions
+      // (1) macro -> evaluation
+      Map<OWLClassExpression, OWLClassExpression> macro2evaluation =
+          macroDefinitions.getMacro2Evaluation();
+      Set<OWLAxiom> evaluations = new HashSet<>();
+      for (Map.Entry<OWLClassExpression, OWLClassExpression> set : macro2evaluation.entrySet()) {
+
+        OWLClassExpression macro = set.getKey();
+        OWLClassExpression evaluation = set.getValue();
+        OWLEquivalentClassesAxiom a = factory.getOWLEquivalentClassesAxiom(macro, evaluation);
+        evaluations.add(a);
+      }
+      saver.save(
+          evaluations,
+          outputPath + "/" + format.getFileName("macroEvaluations", gzip),
+          format,
+          gzip);
+
+      // (2) macro -> expansion
+      Map<OWLClassExpression, OWLClassExpression> macro2expansion =
+          macroDefinitions.getMacro2Expansion();
+      Set<OWLAxiom> expansions = new HashSet<>();
+      for (Map.Entry<OWLClassExpression, OWLClassExpression> set : macro2expansion.entrySet()) {
+
+        OWLClassExpression macro = set.getKey();
+        OWLClassExpression expansion = set.getValue();
+        OWLEquivalentClassesAxiom a = factory.getOWLEquivalentClassesAxiom(macro, expansion);
+        expansions.add(a);
+      }
+      saver.save(
+          expansions, outputPath + "/" + format.getFileName("macroExpansions", gzip), format, gzip);
+
+      // (3) macrofication (written one axiom at a time)
+      Iterable<OWLAxiom> minimizedAxioms =
+          () -> macrofication.stream().map(AxiomMacrofication::getMinimizedAxiom).iterator();
+      saver.save(
+          minimizedAxioms,
+          outputPath + "/" + format.getFileName("macrofication", gzip),
+          format,
+          gzip);
     }
-    OntologySaver.saveAxioms(macroficationOntology, outputPath + "/macrofication.owl");
   }
 }
@@ -0,0 +1,38 @@
+package macro.roundtrip;
+
+import java.io.*;
+import java.nio.file.*;
+import macro.ont.*;
+import macro.util.*;
+import org.semanticweb.owlapi.model.*;
+
+/** Writes a snapshot of the class expression axioms of an ontology (for faster loading) */
+public class Snapshot {
+
+  public static void main(String[] args) throws Exception {
+
+    String ontFilePath = args[0];
+    String output = args[1];
+
+    run(ontFilePath, output);
+  }
+
+  public static void run(String ontFilePath, String output) throws Exception {
+    run(ontFilePath, output, null);
+  }
+
+  // the imports closure of the ontology is loaded by the given loader (if not null)
+  public static void run(String ontFilePath, String output, ImportsClosureLoader importsLoader)
+      throws Exception {
+    File ontFile = new File(ontFilePath);
+    OntologyLoader ontLoader = new OntologyLoader(ontFile, importsLoader);
+    OWLOntology ont = ontLoader.getOntology();
+
+    String ontologyName = Paths.get(ontFilePath).getFileName().toString();
+    IOHelper.createFolder(output);
+    File snapshotFile = new File(output + "/" + ontologyName + ".snapshot");
+
+    int axioms = OntologySnapshot.write(ont, snapshotFile);
+    System.out.println("Wrote " + axioms + " axioms to " + snapshotFile);
+  }
+}
@@ -0,0 +1,191 @@
+package macro.structure;
+
+import java.util.*;
+import org.semanticweb.owlapi.model.*;
+
+/** Inverted index from subterms (or classes) to the axioms they occur in */
+// Axioms get ids in the order in which they are added. Keys are mapped to the (increasing) ids of
+// the axioms they occur in (their posting lists). Keys are either
+// - subterms, identified by their ids in a SubtermDAG, or
+// - classes in the signature of axioms.
+//
+// Removed axioms are only marked as removed. Their ids are dropped from posting lists when the
+// posting lists are looked up. (An axiom that is added again gets a new id.)
+public class AxiomIndex {
+
+  private List<OWLAxiom> axioms; // null for removed axioms
+  private Map<OWLAxiom, Integer> axiom2id;
+
+  private Postings subterm2axioms;
+  private Map<OWLClass, Integer> class2key;
+  private Postings class2axioms;
+
+  public AxiomIndex() {
+    this.axioms = new ArrayList<>();
+    this.axiom2id = new HashMap<>();
+    this.subterm2axioms = new Postings();
+    this.class2key = new HashMap<>();
+    this.class2axioms = new Postings();
+  }
+
+  /**
+   * Adds an axiom to the index w.r.t. its subterms.
+   *
+   * @param axiom the axiom
+   * @param subterms the ids of the (distinct) subterms of the axiom
+   * @return the id of the axiom
+   */
+  public int add(OWLAxiom axiom, int[] subterms) {
+    int id = this.createId(axiom);
+    for (int subterm : subterms) {
+      this.subterm2axioms.post(subterm, id);
+    }
+    return id;
+  }
+
+  /**
+   * Adds an axiom to the index w.r.t. the classes in its signature.
+   *
+   * @param axiom the axiom
+   * @return the id of the axiom
+   */
+  public int add(OWLAxiom axiom) {
+    int id = this.createId(axiom);
+    for (OWLClass c : axiom.getClassesInSignature()) {
+      Integer key = this.class2key.get(c);
+      if (key == null) {
+        key = this.class2key.size();
+        this.class2key.put(c, key);
+      }
+      this.class2axioms.post(key, id);
+    }
+    return id;
+  }
+
+  private int createId(OWLAxiom axiom) {
+    this.remove(axiom);
+    int id = this.axioms.size();
+    this.axioms.add(axiom);
+    this.axiom2id.put(axiom, id);
+    return id;
+  }
+
+  public void remove(OWLAxiom axiom) {
+    Integer id = this.axiom2id.remove(axiom);
+    if (id != null) {
+      this.axioms.set(id, null);
+    }
+  }
+
+  public boolean contains(OWLAxiom axiom) {
+    return this.axiom2id.containsKey(axiom);
+  }
+
+  // returns -1 if the axiom is not in the index
+  public int getId(OWLAxiom axiom) {
+    Integer id = this.axiom2id.get(axiom);
+    return id != null ? id : -1;
+  }
+
+  public OWLAxiom getAxiom(int id) {
+    return this.axioms.get(id);
+  }
+
+  /**
+   * Returns the ids of the axioms a subterm occurs in.
+   *
+   * @param subterm the id of the subterm
+   * @return the ids of the axioms in increasing order
+   */
+  public int[] getAxiomIds(int subterm) {
+    return this.subterm2axioms.get(subterm, this.axioms);
+  }
+
+  // returns the ids of the axioms a class occurs in (in increasing order)
+  public int[] getAxiomIds(OWLClass c) {
+    Integer key = this.class2key.get(c);
+    return key != null ? this.class2axioms.get(key, this.axioms) : new int[0];
+  }
+
+  /**
+   * Returns the axioms any of the given subterms occurs in.
+   *
+   * @param subterms the ids of the subterms
+   * @return the axioms (in the order in which they have been added)
+   */
+  public List<OWLAxiom> getAxioms(Collection<Integer> subterms) {
+    BitSet ids = new BitSet();
+    for (int subterm : subterms) {
+      setAll(ids, this.getAxiomIds(subterm));
+    }
+    return this.getAxioms(ids);
+  }
+
+  // returns the axioms any of the given classes occurs in
+  public List<OWLAxiom> getAxiomsWithClasses(Collection<? extends OWLClass> classes) {
+    return this.getAxioms(this.getAxiomIdsWithClasses(classes));
+  }
+
+  // returns the ids of the axioms any of the given classes occurs in
+  public BitSet getAxiomIdsWithClasses(Collection<? extends OWLClass> classes) {
+    BitSet ids = new BitSet();
+    for (OWLClass c : classes) {
+      setAll(ids, this.getAxiomIds(c));
+    }
+    return ids;
+  }
+
+  private List<OWLAxiom> getAxioms(BitSet ids) {
+    List<OWLAxiom> result = new ArrayList<>();
+    for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+      result.add(this.axioms.get(id));
+    }
+    return result;
+  }
+
+  private static void setAll(BitSet set, int[] ids) {
+    for (int id : ids) {
+      set.set(id);
+    }
+  }
+
+  // posting lists for keys 0, 1, 2, ...
+  private static class Postings {
+    private int[][] postings = new int[64][];
+    private int[] sizes = new int[64];
+
+    private void post(int key, int axiom) {
+      if (key >= this.postings.length) {
+        int length = Math.max(this.postings.length * 2, key + 1);
+        this.postings = Arrays.copyOf(this.postings, length);
+        this.sizes = Arrays.copyOf(this.sizes, length);
+      }
+      int[] posting = this.postings[key];
+      int size = this.sizes[key];
+      if (posting == null) {
+        posting = new int[4];
+      } else if (size == posting.length) {
+        posting = Arrays.copyOf(posting, size * 2);
+      }
+      posting[size] = axiom;
+      this.postings[key] = posting;
+      this.sizes[key] = size + 1;
+    }
+
+    // returns the posting list of a key (without removed axioms)
+    private int[] get(int key, List<OWLAxiom> axioms) {
+      if (key >= this.postings.length || this.postings[key] == null) {
+        return new int[0];
+      }
+      int[] posting = this.postings[key];
+      int size = 0;
+      for (int i = 0; i < this.sizes[key]; i++) {
+        if (axioms.get(posting[i]) != null) {
+          posting[size++] = posting[i];
+        }
+      }
+      this.sizes[key] = size;
+      return Arrays.copyOf(posting, size);
+    }
+  }
+}
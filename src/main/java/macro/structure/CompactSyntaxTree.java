@@ -0,0 +1,291 @@
+package macro.structure;
+
+import java.util.*;
+import macro.structure.nodes.*;
+import org.jgrapht.graph.*;
+import org.semanticweb.owlapi.model.*;
+
+/** Compact Syntax Tree */
+// A syntax tree without a graph: nodes are stored in an array in pre-order, i.e., the root has
+// index 0 and every node is stored before all of its descendants. The structure of the tree is
+// kept in int arrays: the parent of node i is parents[i] (-1 for the root) and the children of
+// node i are children[childOffsets[i]], ..., children[childOffsets[i + 1] - 1].
+// Compared to a SimpleDirectedGraph, this saves the vertex map, one object per edge, and the two
+// edge sets per node.
+public class CompactSyntaxTree {
+
+  // node kinds (one for each kind of SyntaxNode)
+  public static final byte AXIOM = 0;
+  public static final byte CLASS = 1;
+  public static final byte SUBCLASSOF = 2;
+  public static final byte SUPERCLASSOF = 3;
+  public static final byte UNION = 4;
+  public static final byte PROPERTY = 5;
+  public static final byte PROPERTY_CHAIN = 6;
+  public static final byte INDIVIDUAL = 7;
+  public static final byte DATA_RANGE = 8;
+  public static final byte LITERAL = 9;
+  public static final byte FACET_RESTRICTION = 10;
+  public static final byte CARDINALITY = 11;
+  public static final byte OTHER = 12;
+
+  private SyntaxNode[] nodes;
+  private byte[] kinds;
+  private int[] parents;
+  private int[] childOffsets;
+  private int[] children;
+
+  /**
+   * Constructor for a compact syntax tree.
+   *
+   * @param nodes the nodes of the tree in pre-order
+   * @param parents the index of each node's parent (-1 for the root)
+   */
+  public CompactSyntaxTree(SyntaxNode[] nodes, int[] parents) {
+    this.nodes = nodes;
+    this.parents = parents;
+    this.kinds = new byte[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      this.kinds[i] = kindOf(nodes[i]);
+    }
+    this.initChildren();
+  }
+
+  // children of a node are stored in increasing order of their index
+  // (which is the order in which they have been added by the SyntaxTreeBuilder)
+  private void initChildren() {
+    int size = this.nodes.length;
+    this.childOffsets = new int[size + 1];
+    for (int i = 1; i < size; i++) {
+      this.childOffsets[this.parents[i] + 1]++;
+    }
+    for (int i = 0; i < size; i++) {
+      this.childOffsets[i + 1] += this.childOffsets[i];
+    }
+    this.children = new int[Math.max(0, size - 1)];
+    int[] next = Arrays.copyOf(this.childOffsets, size);
+    for (int i = 1; i < size; i++) {
+      this.children[next[this.parents[i]]++] = i;
+    }
+  }
+
+  public static byte kindOf(SyntaxNode n) {
+    if (n instanceof AxiomNode) {
+      return AXIOM;
+    }
+    if (n instanceof ClassNode) {
+      return CLASS;
+    }
+    if (n instanceof SubClassOfNode) {
+      return SUBCLASSOF;
+    }
+    if (n instanceof SuperClassOfNode) {
+      return SUPERCLASSOF;
+    }
+    if (n instanceof UnionNode) {
+      return UNION;
+    }
+    if (n instanceof PropertyNode) {
+      return PROPERTY;
+    }
+    if (n instanceof PropertyChainNode) {
+      return PROPERTY_CHAIN;
+    }
+    if (n instanceof IndividualNode) {
+      return INDIVIDUAL;
+    }
+    if (n instanceof DataRangeNode) {
+      return DATA_RANGE;
+    }
+    if (n instanceof LiteralNode) {
+      return LITERAL;
+    }
+    if (n instanceof FacetRestrictionNode) {
+      return FACET_RESTRICTION;
+    }
+    if (n instanceof CardinalityNode) {
+      return CARDINALITY;
+    }
+    return OTHER;
+  }
+
+  // class expression nodes are the nodes that can be rewritten
+  public static boolean isClassExpression(byte kind) {
+    return kind == CLASS || kind == SUBCLASSOF || kind == SUPERCLASSOF || kind == UNION;
+  }
+
+  public int getSize() {
+    return this.nodes.length;
+  }
+
+  // NB: trees of axioms without a syntax tree representation (e.g. SWRL rules) are empty
+  public SyntaxNode getRoot() {
+    return this.nodes.length > 0 ? this.nodes[0] : null;
+  }
+
+  public SyntaxNode getNode(int i) {
+    return this.nodes[i];
+  }
+
+  public OWLObject getObject(int i) {
+    return this.nodes[i].getObject();
+  }
+
+  public byte getKind(int i) {
+    return this.kinds[i];
+  }
+
+  public int getParent(int i) {
+    return this.parents[i];
+  }
+
+  public int getNumberOfChildren(int i) {
+    return this.childOffsets[i + 1] - this.childOffsets[i];
+  }
+
+  public int getChild(int i, int k) {
+    return this.children[this.childOffsets[i] + k];
+  }
+
+  public List<SyntaxNode> getChildNodes(int i) {
+    List<SyntaxNode> res = new ArrayList<>(getNumberOfChildren(i));
+    for (int k = this.childOffsets[i]; k < this.childOffsets[i + 1]; k++) {
+      res.add(this.nodes[this.children[k]]);
+    }
+    return res;
+  }
+
+  // the number of nodes in the subtree rooted at each node
+  // (the subtree of node i consists of the nodes i, ..., i + subtreeSizes[i] - 1)
+  public int[] getSubtreeSizes() {
+    int[] sizes = new int[this.nodes.length];
+    for (int i = this.nodes.length - 1; i >= 0; i--) {
+      sizes[i] += 1;
+      if (i > 0) {
+        sizes[this.parents[i]] += sizes[i];
+      }
+    }
+    return sizes;
+  }
+
+  /**
+   * Returns a graph view of this tree (for code that works on SyntaxTrees).
+   *
+   * <p>NB: the graph shares its nodes with this tree.
+   *
+   * @return the syntax tree as a graph
+   */
+  public SyntaxTree toSyntaxTree() {
+    SimpleDirectedGraph<SyntaxNode, DefaultEdge> graph =
+        new SimpleDirectedGraph<>(DefaultEdge.class);
+    for (int i = 0; i < this.nodes.length; i++) {
+      graph.addVertex(this.nodes[i]);
+      if (i > 0) {
+        graph.addEdge(this.nodes[this.parents[i]], this.nodes[i]);
+      }
+    }
+    return new SyntaxTree(graph, getRoot());
+  }
+
+  /**
+   * Converts a syntax tree (graph) into a compact syntax tree.
+   *
+   * <p>NB: the compact tree shares its nodes with the given tree.
+   *
+   * @param tree the syntax tree
+   * @return the compact syntax tree
+   */
+  public static CompactSyntaxTree of(SyntaxTree tree) {
+    SimpleDirectedGraph<SyntaxNode, DefaultEdge> graph = tree.getTree();
+    Builder builder = new Builder();
+    // depth-first traversal (children are pushed in reverse order to keep their order)
+    Deque<SyntaxNode> stack = new ArrayDeque<>();
+    Map<SyntaxNode, SyntaxNode> parent = new IdentityHashMap<>();
+    stack.push(tree.getRoot());
+    while (!stack.isEmpty()) {
+      SyntaxNode n = stack.pop();
+      builder.add(n, parent.get(n));
+      List<SyntaxNode> successors = new ArrayList<>();
+      for (DefaultEdge e : graph.outgoingEdgesOf(n)) {
+        successors.add(graph.getEdgeTarget(e));
+      }
+      for (int k = successors.size() - 1; k >= 0; k--) {
+        parent.put(successors.get(k), n);
+        stack.push(successors.get(k));
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Assembles a compact syntax tree from nodes that are added in pre-order.
+   *
+   * <p>Since nodes are added in pre-order, the parent of a new node is always on the path from the
+   * root to the last added node. So, we only need to keep track of this path (instead of a map from
+   * nodes to their indices).
+   */
+  public static class Builder {
+    private SyntaxNode[] nodes;
+    private int[] parents;
+    private int size;
+
+    private SyntaxNode[] pathNodes;
+    private int[] pathIndices;
+    private int pathLength;
+
+    public Builder() {
+      this.nodes = new SyntaxNode[16];
+      this.parents = new int[16];
+      this.pathNodes = new SyntaxNode[16];
+      this.pathIndices = new int[16];
+    }
+
+    /**
+     * Adds a node to the tree.
+     *
+     * @param node the node to add
+     * @param parent the parent of the node (null for the root)
+     * @return the index of the node
+     */
+    public int add(SyntaxNode node, SyntaxNode parent) {
+      int parentIndex = -1;
+      if (parent != null) {
+        while (this.pathLength > 0 && this.pathNodes[this.pathLength - 1] != parent) {
+          this.pathLength--;
+        }
+        if (this.pathLength == 0) {
+          throw new IllegalStateException("Nodes of a compact syntax tree need to be in pre-order");
+        }
+        parentIndex = this.pathIndices[this.pathLength - 1];
+      } else if (this.size > 0) {
+        throw new IllegalStateException("A compact syntax tree can only have one root");
+      }
+
+      if (this.size == this.nodes.length) {
+        this.nodes = Arrays.copyOf(this.nodes, this.size * 2);
+        this.parents = Arrays.copyOf(this.parents, this.size * 2);
+      }
+      if (this.pathLength == this.pathNodes.length) {
+        this.pathNodes = Arrays.copyOf(this.pathNodes, this.pathLength * 2);
+        this.pathIndices = Arrays.copyOf(this.pathIndices, this.pathLength * 2);
+      }
+
+      int index = this.size++;
+      this.nodes[index] = node;
+      this.parents[index] = parentIndex;
+      this.pathNodes[this.pathLength] = node;
+      this.pathIndices[this.pathLength] = index;
+      this.pathLength++;
+      return index;
+    }
+
+    public int size() {
+      return this.size;
+    }
+
+    public CompactSyntaxTree build() {
+      return new CompactSyntaxTree(
+          Arrays.copyOf(this.nodes, this.size), Arrays.copyOf(this.parents, this.size));
+    }
+  }
+}
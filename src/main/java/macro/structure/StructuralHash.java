@@ -0,0 +1,102 @@
+package macro.structure;
+
+import java.util.*;
+import macro.structure.nodes.*;
+import org.jgrapht.graph.*;
+import org.semanticweb.owlapi.model.*;
+
+/** Structural (Merkle) hashes of syntax trees */
+// The hash of a node is computed bottom-up from the hashes of its children. So, nodes with equal
+// subtrees have equal hashes and equality of terms can be tested by comparing hashes first (and
+// confirming a hit with 'equals').
+//
+// - the hash of a node does not depend on its own label (SubClassOf, SuperClassOf, Union), i.e.,
+//   all nodes for the same OWL object have the same hash regardless of their position
+//   (but labels of children are taken into account)
+// - children are not ordered and operands of n-ary expressions are sets, so the hashes of
+//   children are combined commutatively and duplicates only count once
+// - leaves are hashed by their OWL object (or their cardinality)
+public final class StructuralHash {
+
+  private static final long LABEL = 0x9e3779b97f4a7c15L;
+
+  private StructuralHash() {}
+
+  /**
+   * Computes (and sets) the hash of a node from the hashes of its children.
+   *
+   * @param node the node
+   * @param children the children of the node (with up to date hashes)
+   * @return the hash of the node
+   */
+  public static long of(SyntaxNode node, Collection<SyntaxNode> children) {
+    long hash;
+    if (children.isEmpty()) {
+      hash = leaf(node);
+    } else {
+      long[] contributions = new long[children.size()];
+      int n = 0;
+      for (SyntaxNode c : children) {
+        contributions[n++] = mix(c.getHash() + LABEL * (CompactSyntaxTree.kindOf(c) + 1));
+      }
+      Arrays.sort(contributions);
+      hash = node.getObject() != null ? node.getObject().typeIndex() : 0;
+      for (int i = 0; i < n; i++) {
+        if (i == 0 || contributions[i] != contributions[i - 1]) {
+          hash += contributions[i];
+        }
+      }
+      hash = mix(hash);
+    }
+    node.setHash(hash);
+    return hash;
+  }
+
+  private static long leaf(SyntaxNode node) {
+    if (node instanceof CardinalityNode) {
+      return mix(LABEL ^ ((CardinalityNode) node).getCardinality());
+    }
+    OWLObject object = node.getObject();
+    return object != null ? mix(object.hashCode()) : 0;
+  }
+
+  // (finalizer of SplitMix64)
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  // hashes all nodes of a tree
+  public static void hash(SyntaxTree tree) {
+    SimpleDirectedGraph<SyntaxNode, DefaultEdge> graph = tree.getTree();
+    // nodes in pre-order (so iterating backwards visits children before their parents)
+    List<SyntaxNode> nodes = new ArrayList<>();
+    Deque<SyntaxNode> stack = new ArrayDeque<>();
+    stack.push(tree.getRoot());
+    while (!stack.isEmpty()) {
+      SyntaxNode n = stack.pop();
+      nodes.add(n);
+      for (DefaultEdge e : graph.outgoingEdgesOf(n)) {
+        stack.push(graph.getEdgeTarget(e));
+      }
+    }
+    List<SyntaxNode> children = new ArrayList<>();
+    for (int i = nodes.size() - 1; i >= 0; i--) {
+      SyntaxNode n = nodes.get(i);
+      children.clear();
+      for (DefaultEdge e : graph.outgoingEdgesOf(n)) {
+        children.add(graph.getEdgeTarget(e));
+      }
+      of(n, children);
+    }
+  }
+
+  // hashes all nodes of a compact tree
+  public static void hash(CompactSyntaxTree tree) {
+    // children are stored after their parents
+    for (int i = tree.getSize() - 1; i >= 0; i--) {
+      of(tree.getNode(i), tree.getChildNodes(i));
+    }
+  }
+}
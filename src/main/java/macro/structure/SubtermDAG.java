@@ -0,0 +1,272 @@
+package macro.structure;
+
+import java.util.*;
+import macro.parser.*;
+import org.semanticweb.owlapi.model.*;
+
+/** Subterm DAG */
+// A hash-consed representation of all class expressions (subterms) occurring in a set of axioms.
+// Every distinct class expression is represented by exactly one node (identified by an int id).
+// A node is linked to the nodes of its direct class expression subterms, so a subterm that occurs
+// multiple times is only represented once. For each node, we store
+// - the size of the class expression (the size of its syntax tree), and
+// - the number of occurrences of the class expression in the added axioms.
+//
+// Nodes are created bottom-up, i.e., the id of a class expression is always larger than the ids of
+// its subterms. So, iterating over the ids in increasing order visits subterms before the terms
+// they occur in.
+//
+// Only direct edges are stored. The terms a term directly occurs in (its parents) are indexed on
+// demand, and transitive relationships are computed by traversing the DAG.
+//
+// Axioms can also be removed again, which only decreases occurrences (nodes are kept).
+public class SubtermDAG {
+
+  private Map<OWLClassExpression, Integer> expression2id;
+  private List<OWLClassExpression> expressions;
+  private List<int[]> children;
+  // the inverse of children (null if not indexed yet)
+  private int[][] parents;
+  private int[] sizes;
+  private int[] occurrences;
+
+  private SyntaxTreeBuilder treeBuilder;
+  private TermSizeVisitor sizeVisitor;
+
+  public SubtermDAG() {
+    this.expression2id = new HashMap<>();
+    this.expressions = new ArrayList<>();
+    this.children = new ArrayList<>();
+    this.sizes = new int[64];
+    this.occurrences = new int[64];
+    this.treeBuilder = new SyntaxTreeBuilder();
+    this.sizeVisitor = new TermSizeVisitor();
+  }
+
+  /**
+   * Adds all class expressions of an axiom to the DAG and counts their occurrences.
+   *
+   * <p>Occurrences are counted w.r.t. the syntax tree of the axiom, i.e., a class expression that
+   * occurs twice in an axiom is counted twice.
+   *
+   * @param axiom the axiom
+   * @return the ids of the (distinct) class expressions of the axiom in increasing order
+   */
+  public int[] add(OWLAxiom axiom) {
+    CompactSyntaxTree tree = this.treeBuilder.buildCompact(axiom);
+    int[] ids = this.intern(tree);
+    for (int id : ids) {
+      if (id != -1) {
+        this.occurrences[id]++;
+      }
+    }
+    return distinct(ids);
+  }
+
+  /**
+   * Removes the occurrences of class expressions of an axiom (that has been added before).
+   *
+   * <p>NB: nodes are not removed from the DAG (even if they do not occur anymore), so ids stay
+   * valid.
+   *
+   * @param axiom the axiom
+   * @return the ids of the (distinct) class expressions of the axiom in increasing order
+   */
+  public int[] remove(OWLAxiom axiom) {
+    CompactSyntaxTree tree = this.treeBuilder.buildCompact(axiom);
+    int[] ids = this.intern(tree);
+    for (int id : ids) {
+      if (id != -1) {
+        this.occurrences[id]--;
+      }
+    }
+    return distinct(ids);
+  }
+
+  // sorts ids and removes duplicates (and -1 for nodes that are not class expressions)
+  private static int[] distinct(int[] ids) {
+    int[] sorted = ids.clone();
+    Arrays.sort(sorted);
+    int n = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (sorted[i] != -1 && (n == 0 || sorted[n - 1] != sorted[i])) {
+        sorted[n++] = sorted[i];
+      }
+    }
+    return Arrays.copyOf(sorted, n);
+  }
+
+  /**
+   * Returns the id of a class expression (and adds the expression to the DAG if necessary).
+   *
+   * <p>NB: this does not change the occurrences of any class expression.
+   *
+   * @param expression the class expression
+   * @return the id of the class expression
+   */
+  public int intern(OWLClassExpression expression) {
+    Integer id = this.expression2id.get(expression);
+    if (id != null) {
+      return id;
+    }
+    CompactSyntaxTree tree = this.treeBuilder.buildCompact(expression);
+    return this.intern(tree)[0];
+  }
+
+  // returns the ids of all class expression nodes in the tree (-1 for other nodes)
+  private int[] intern(CompactSyntaxTree tree) {
+    int size = tree.getSize();
+    int[] subtreeSizes = tree.getSubtreeSizes();
+    int[] ids = new int[size];
+    // children are stored after their parents,
+    // so iterating backwards interns subterms before the terms they occur in
+    for (int i = size - 1; i >= 0; i--) {
+      ids[i] = -1;
+      if (!CompactSyntaxTree.isClassExpression(tree.getKind(i))) {
+        continue;
+      }
+      OWLClassExpression expression = (OWLClassExpression) tree.getObject(i);
+      Integer id = this.expression2id.get(expression);
+      if (id == null) {
+        int[] subterms = new int[tree.getNumberOfChildren(i)];
+        int n = 0;
+        for (int k = 0; k < subterms.length; k++) {
+          int child = ids[tree.getChild(i, k)];
+          if (child != -1) {
+            subterms[n++] = child;
+          }
+        }
+        id = this.createNode(expression, Arrays.copyOf(subterms, n), subtreeSizes[i]);
+      }
+      ids[i] = id;
+    }
+    return ids;
+  }
+
+  private int createNode(OWLClassExpression expression, int[] subterms, int size) {
+    int id = this.expressions.size();
+    if (id == this.sizes.length) {
+      this.sizes = Arrays.copyOf(this.sizes, id * 2);
+      this.occurrences = Arrays.copyOf(this.occurrences, id * 2);
+    }
+    this.expressions.add(expression);
+    this.children.add(subterms);
+    if (this.parents != null) {
+      // keep the index of parents up to date
+      if (id == this.parents.length) {
+        this.parents = Arrays.copyOf(this.parents, id * 2);
+      }
+      this.parents[id] = new int[0];
+      for (int child : subterms) {
+        int[] p = this.parents[child];
+        p = Arrays.copyOf(p, p.length + 1);
+        p[p.length - 1] = id;
+        this.parents[child] = p;
+      }
+    }
+    this.sizes[id] = size;
+    this.expression2id.put(expression, id);
+    return id;
+  }
+
+  public boolean contains(OWLClassExpression expression) {
+    return this.expression2id.containsKey(expression);
+  }
+
+  // returns -1 if the class expression is not in the DAG
+  public int getId(OWLClassExpression expression) {
+    Integer id = this.expression2id.get(expression);
+    return id != null ? id : -1;
+  }
+
+  public int getNumberOfNodes() {
+    return this.expressions.size();
+  }
+
+  public OWLClassExpression getExpression(int id) {
+    return this.expressions.get(id);
+  }
+
+  // the ids of the direct class expression subterms
+  public int[] getChildren(int id) {
+    return this.children.get(id);
+  }
+
+  // the ids of the terms the given term directly occurs in
+  // (NB: the index of parents is built on first use and maintained for nodes added afterwards)
+  public int[] getParents(int id) {
+    if (this.parents == null) {
+      this.indexParents();
+    }
+    return this.parents[id];
+  }
+
+  private void indexParents() {
+    int n = this.expressions.size();
+    int[] numberOfParents = new int[n];
+    for (int id = 0; id < n; id++) {
+      for (int child : this.children.get(id)) {
+        numberOfParents[child]++;
+      }
+    }
+    this.parents = new int[Math.max(n, 64)][];
+    for (int id = 0; id < n; id++) {
+      this.parents[id] = new int[numberOfParents[id]];
+      numberOfParents[id] = 0;
+    }
+    for (int id = 0; id < n; id++) {
+      for (int child : this.children.get(id)) {
+        this.parents[child][numberOfParents[child]++] = id;
+      }
+    }
+  }
+
+  // checks whether term 'sub' occurs in term 'sup' (a term occurs in itself)
+  // Only terms with ids larger than (or equal to) 'sub' can contain it, so all other terms are
+  // skipped during the traversal.
+  public boolean occursIn(int sub, int sup) {
+    BitSet visited = new BitSet();
+    Deque<Integer> stack = new ArrayDeque<>();
+    stack.push(sup);
+    while (!stack.isEmpty()) {
+      int id = stack.pop();
+      if (id == sub) {
+        return true;
+      }
+      for (int child : this.children.get(id)) {
+        if (child >= sub && !visited.get(child)) {
+          visited.set(child);
+          stack.push(child);
+        }
+      }
+    }
+    return false;
+  }
+
+  public int getSize(int id) {
+    return this.sizes[id];
+  }
+
+  // NB: class expressions that are not in the DAG are measured (but not added)
+  public int getSize(OWLClassExpression expression) {
+    Integer id = this.expression2id.get(expression);
+    if (id != null) {
+      return this.sizes[id];
+    }
+    return this.sizeVisitor.getSize(expression);
+  }
+
+  public int getOccurrence(int id) {
+    return this.occurrences[id];
+  }
+
+  // returns 0 if the class expression is not in the DAG
+  public int getOccurrence(OWLClassExpression expression) {
+    Integer id = this.expression2id.get(expression);
+    return id != null ? this.occurrences[id] : 0;
+  }
+
+  public Set<OWLClassExpression> getExpressions() {
+    return this.expression2id.keySet();
+  }
+}
@@ -19,9 +19,26 @@ import org.semanticweb.owlapi.util.*;
 public class SyntaxTreeUtil {
 
   private SyntaxTreeBuilder treeBuilder;
+  private TermSizeVisitor sizeVisitor;
+  // (optional) DAG of subterms used to look up sizes of class expressions
+  private SubtermDAG subtermDAG;
 
   public SyntaxTreeUtil() {
     this.treeBuilder = new SyntaxTreeBuilder();
+    this.sizeVisitor = new TermSizeVisitor();
+  }
+
+  public SyntaxTreeUtil(SubtermDAG dag) {
+    this.treeBuilder = new SyntaxTreeBuilder();
+    this.sizeVisitor = new TermSizeVisitor();
+    this.subtermDAG = dag;
+  }
+
+  private int getSize(OWLClassExpression exp) {
+    if (this.subtermDAG != null) {
+      return this.subtermDAG.getSize(exp);
+    }
+    return this.sizeVisitor.getSize(exp);
   }
 
   public TreeMap<Integer, Set<OWLClassExpression>> size2expressions(OWLAxiom axiom) {
@@ -30,8 +47,7 @@ public class SyntaxTreeUtil {
     Set<OWLClassExpression> expressions = axiom.getNestedClassExpressions();
 
     for (OWLClassExpression exp : expressions) {
-      SyntaxTree tree = this.treeBuilder.build(exp);
-      int size = tree.getSize();
+      int size = getSize(exp);
       size2expressions.putIfAbsent(size, new HashSet<>());
       size2expressions.get(size).add(exp);
     }
@@ -46,8 +62,7 @@ public class SyntaxTreeUtil {
     Set<OWLClassExpression> expressions = expression.getNestedClassExpressions();
     // expressions.remove(expression); // this excludes the expression itself
     for (OWLClassExpression exp : expressions) {
-      SyntaxTree tree = this.treeBuilder.build(exp);
-      int size = tree.getSize();
+      int size = getSize(exp);
       size2expressions.putIfAbsent(size, new HashSet<>());
       size2expressions.get(size).add(exp);
     }
@@ -63,8 +78,7 @@ public class SyntaxTreeUtil {
     Set<OWLClassExpression> expressions = expression.getNestedClassExpressions();
     expressions.remove(expression); // this excludes the expression itself
     for (OWLClassExpression exp : expressions) {
-      SyntaxTree tree = this.treeBuilder.build(exp);
-      int size = tree.getSize();
+      int size = getSize(exp);
       size2expressions.putIfAbsent(size, new HashSet<>());
       size2expressions.get(size).add(exp);
     }
@@ -72,7 +86,14 @@ public class SyntaxTreeUtil {
   }
 
   public OWLClassExpression getExpressionFromTree(SyntaxTree tree) {
-    SyntaxNode n = tree.getRoot();
+    return getExpressionFromNode(tree.getRoot());
+  }
+
+  public OWLClassExpression getExpressionFromTree(CompactSyntaxTree tree) {
+    return getExpressionFromNode(tree.getRoot());
+  }
+
+  private OWLClassExpression getExpressionFromNode(SyntaxNode n) {
     if (n instanceof ClassNode) {
       ClassNode r = (ClassNode) n;
       return r.getExpression();
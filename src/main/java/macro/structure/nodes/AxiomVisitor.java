@@ -14,176 +14,163 @@ import org.semanticweb.owlapi.reasoner.*;
 import org.semanticweb.owlapi.util.*;
 
 /** Logical Axiom Visitor */
-public class AxiomVisitor implements OWLAxiomVisitor {
+// returns the root node of the syntax tree of an axiom (this visitor is stateless)
+public class AxiomVisitor implements OWLAxiomVisitorEx<SyntaxNode> {
 
-  private SyntaxNode syntaxNode;
-
-  public SyntaxNode getSyntaxNode() {
-    return this.syntaxNode;
-  }
-
-  public void visit(OWLAsymmetricObjectPropertyAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLAsymmetricObjectPropertyAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLClassAssertionAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLClassAssertionAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLDataPropertyAssertionAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLDataPropertyAssertionAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLDataPropertyDomainAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLDataPropertyDomainAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLDataPropertyRangeAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLDataPropertyRangeAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLDifferentIndividualsAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLDifferentIndividualsAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLDisjointClassesAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLDisjointClassesAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLDisjointDataPropertiesAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLDisjointDataPropertiesAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLDisjointObjectPropertiesAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLDisjointObjectPropertiesAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLDisjointUnionAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLDisjointUnionAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLEquivalentClassesAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLEquivalentClassesAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLEquivalentDataPropertiesAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLEquivalentDataPropertiesAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLEquivalentObjectPropertiesAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLEquivalentObjectPropertiesAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLFunctionalDataPropertyAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLFunctionalDataPropertyAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLFunctionalObjectPropertyAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLFunctionalObjectPropertyAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLHasKeyAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLHasKeyAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLInverseFunctionalObjectPropertyAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLInverseFunctionalObjectPropertyAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLInverseObjectPropertiesAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLInverseObjectPropertiesAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLIrreflexiveObjectPropertyAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLIrreflexiveObjectPropertyAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLNegativeDataPropertyAssertionAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLNegativeDataPropertyAssertionAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLNegativeObjectPropertyAssertionAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLNegativeObjectPropertyAssertionAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLObjectPropertyAssertionAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLObjectPropertyAssertionAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLObjectPropertyDomainAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLObjectPropertyDomainAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLObjectPropertyRangeAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLObjectPropertyRangeAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLReflexiveObjectPropertyAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLReflexiveObjectPropertyAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLSameIndividualAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLSameIndividualAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLSubClassOfAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLSubClassOfAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLSubDataPropertyOfAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLSubDataPropertyOfAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLSubObjectPropertyOfAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLSubObjectPropertyOfAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLSubPropertyChainOfAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLSubPropertyChainOfAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLSymmetricObjectPropertyAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLSymmetricObjectPropertyAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLTransitiveObjectPropertyAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLTransitiveObjectPropertyAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
   // base things
 
-  public void visit(SWRLRule node) {
+  public SyntaxNode visit(SWRLRule node) {
     // TODO
-    ; // ?
-  }
-
-  public void doDefault(Object object) {
-    ; // ?
-  }
-
-  public void getDefaultReturnValue(Object object) {
-    ; // ?
+    return null; // ?
   }
 
-  public void handleDefault(Object c) {
-    ; // ?
+  public <T> SyntaxNode doDefault(T object) {
+    return null; // ?
   }
 
   // annotation axioms
 
-  public void visit(OWLAnnotationAssertionAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLAnnotationAssertionAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLAnnotationPropertyDomainAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLAnnotationPropertyDomainAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLAnnotationPropertyRangeAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLAnnotationPropertyRangeAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 
-  public void visit(OWLSubAnnotationPropertyOfAxiom axiom) {
-    this.syntaxNode = new AxiomNode(axiom);
+  public SyntaxNode visit(OWLSubAnnotationPropertyOfAxiom axiom) {
+    return new AxiomNode(axiom);
   }
 }
@@ -26,6 +26,9 @@ public class SyntaxNode {
   private int occurrence;
   private int children;
 
+  // structural hash of the subtree rooted at this node (cf. StructuralHash)
+  private long hash;
+
   public SyntaxNode(OWLObject o) {
     this.object = o;
     this.occurrence = 1;
@@ -52,6 +55,14 @@ public class SyntaxNode {
     }
   }
 
+  public long getHash() {
+    return this.hash;
+  }
+
+  public void setHash(long h) {
+    this.hash = h;
+  }
+
   public OWLObject getObject() {
     return this.object;
   }
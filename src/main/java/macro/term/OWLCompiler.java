@@ -17,9 +17,15 @@ import org.semanticweb.owlapi.model.*;
 import org.semanticweb.owlapi.util.*;
 
 /** Transforms an Term Tree (Abstract Syntax Tree) back into a term, i.e., an OWL expression */
+// Compilation is done bottom-up: an OWL expression for a node is rebuilt from the (already
+// compiled) OWL expressions of its children. For a SyntaxTree, nodes are collected in pre-order
+// with an explicit stack and rebuilt in reverse order (so there is no recursion). For a
+// CompactSyntaxTree, nodes are stored in pre-order, so iterating over the nodes in reverse order
+// visits all children of a node before the node itself.
 public class OWLCompiler {
 
   private SyntaxTree synTree;
+  private CompactSyntaxTree compactTree;
   private SyntaxNode root;
   private SimpleDirectedGraph<SyntaxNode, DefaultEdge> tree;
   private OWLClassExpression expression;
@@ -30,30 +36,131 @@ public class OWLCompiler {
     this.tree = this.synTree.getTree();
     this.root = this.synTree.getRoot();
 
-    this.factory = OWLManager.createOWLOntologyManager().getOWLDataFactory();
+    this.factory = OWLManager.getOWLDataFactory();
+  }
+
+  public OWLCompiler(CompactSyntaxTree t) {
+    this.compactTree = t;
+    this.root = this.compactTree.getRoot();
+
+    this.factory = OWLManager.getOWLDataFactory();
   }
 
   public SyntaxTree getTree() {
     return this.synTree;
   }
 
+  public CompactSyntaxTree getCompactTree() {
+    return this.compactTree;
+  }
+
   public void compile() {
+    if (this.compactTree != null) {
+      compileCompactTree();
+      return;
+    }
     if (this.root instanceof AxiomNode) {
       compileAxiomNode((AxiomNode) this.root);
     }
-    if (this.root instanceof ClassNode) {
+    if (isClassExpressionNode(this.root)) {
       compileClassExpressionNode(this.root);
     }
-    if (this.root instanceof SubClassOfNode) {
-      compileClassExpressionNode(this.root);
+    // TODO: other kinds of nodes
+  }
+
+  /**
+   * Recompiles the ancestors of the given nodes.
+   *
+   * <p>The given nodes (and their subtrees) need to be up to date, e.g., because they have just
+   * been inserted by a rewriting. So, only the nodes on the paths from the given nodes to the root
+   * need to be rebuilt. This is done bottom-up (by descending depth), reusing the OWL objects of
+   * all unchanged siblings.
+   *
+   * @param changed the roots of the changed subtrees
+   */
+  public void compile(Collection<SyntaxNode> changed) {
+    Map<SyntaxNode, Integer> ancestor2depth = new IdentityHashMap<>();
+    for (SyntaxNode n : changed) {
+      List<SyntaxNode> path = new ArrayList<>();
+      SyntaxNode current = getParent(n);
+      while (current != null && !ancestor2depth.containsKey(current)) {
+        path.add(current);
+        current = getParent(current);
+      }
+      // the depth of the first node on the path that has already been seen (-1 for the root)
+      int depth = current != null ? ancestor2depth.get(current) : -1;
+      for (int i = path.size() - 1; i >= 0; i--) {
+        ancestor2depth.put(path.get(i), ++depth);
+      }
     }
-    if (this.root instanceof SuperClassOfNode) {
-      compileClassExpressionNode(this.root);
+
+    List<SyntaxNode> ancestors = new ArrayList<>(ancestor2depth.keySet());
+    ancestors.sort((a, b) -> ancestor2depth.get(b) - ancestor2depth.get(a));
+    for (SyntaxNode n : ancestors) {
+      if (n instanceof AxiomNode) {
+        rebuildAxiomNode((AxiomNode) n, getSubExpressionNodes(n));
+      } else if (isClassExpressionNode(n)) {
+        rebuildClassExpressionNode(n, getSubExpressionNodes(n));
+      }
     }
-    if (this.root instanceof UnionNode) {
-      compileClassExpressionNode(this.root);
+  }
+
+  /**
+   * Recompiles the ancestors of the given nodes in a compact syntax tree (cf. compile(Collection)).
+   *
+   * @param changed the indices of the roots of the changed subtrees
+   */
+  public void compile(int[] changed) {
+    boolean[] marked = new boolean[this.compactTree.getSize()];
+    int[] ancestors = new int[this.compactTree.getSize()];
+    int n = 0;
+    for (int c : changed) {
+      int p = this.compactTree.getParent(c);
+      while (p != -1 && !marked[p]) {
+        marked[p] = true;
+        ancestors[n++] = p;
+        p = this.compactTree.getParent(p);
+      }
     }
-    // TODO: other kinds of nodes
+    // parents are stored before their children,
+    // so rebuilding in descending index order rebuilds children before their parents
+    Arrays.sort(ancestors, 0, n);
+    for (int k = n - 1; k >= 0; k--) {
+      int i = ancestors[k];
+      byte kind = this.compactTree.getKind(i);
+      if (kind == CompactSyntaxTree.AXIOM) {
+        rebuildAxiomNode(
+            (AxiomNode) this.compactTree.getNode(i), this.compactTree.getChildNodes(i));
+      } else if (CompactSyntaxTree.isClassExpression(kind)) {
+        rebuildClassExpressionNode(this.compactTree.getNode(i), this.compactTree.getChildNodes(i));
+      }
+    }
+  }
+
+  private SyntaxNode getParent(SyntaxNode n) {
+    for (DefaultEdge e : this.tree.incomingEdgesOf(n)) {
+      return this.tree.getEdgeSource(e);
+    }
+    return null;
+  }
+
+  private void compileCompactTree() {
+    for (int i = this.compactTree.getSize() - 1; i >= 0; i--) {
+      byte kind = this.compactTree.getKind(i);
+      if (kind == CompactSyntaxTree.AXIOM) {
+        rebuildAxiomNode(
+            (AxiomNode) this.compactTree.getNode(i), this.compactTree.getChildNodes(i));
+      } else if (CompactSyntaxTree.isClassExpression(kind)) {
+        rebuildClassExpressionNode(this.compactTree.getNode(i), this.compactTree.getChildNodes(i));
+      }
+    }
+  }
+
+  private static boolean isClassExpressionNode(SyntaxNode n) {
+    return n instanceof ClassNode
+        || n instanceof SubClassOfNode
+        || n instanceof SuperClassOfNode
+        || n instanceof UnionNode;
   }
 
   private Set<SyntaxNode> getSubExpressionNodes(SyntaxNode n) {
@@ -66,9 +173,46 @@ public class OWLCompiler {
   }
 
   public OWLAxiom compileAxiomNode(AxiomNode n) {
-    OWLAxiom axiom = n.getAxiom();
-
     Set<SyntaxNode> children = getSubExpressionNodes(n);
+    for (SyntaxNode c : children) {
+      if (isClassExpressionNode(c)) {
+        compileClassExpressionNode(c);
+      }
+    }
+    return rebuildAxiomNode(n, children);
+  }
+
+  public OWLClassExpression compileClassExpressionNode(SyntaxNode n) {
+    // collect the nested class expression nodes in pre-order (with an explicit stack, so deeply
+    // nested expressions do not overflow the call stack) ...
+    List<SyntaxNode> nodes = new ArrayList<>();
+    List<Set<SyntaxNode>> children = new ArrayList<>();
+    Deque<SyntaxNode> stack = new ArrayDeque<>();
+    stack.push(n);
+    while (!stack.isEmpty()) {
+      SyntaxNode current = stack.pop();
+      Set<SyntaxNode> subExpressionNodes = getSubExpressionNodes(current);
+      nodes.add(current);
+      children.add(subExpressionNodes);
+      for (SyntaxNode c : subExpressionNodes) {
+        if (isClassExpressionNode(c)) {
+          stack.push(c);
+        }
+      }
+    }
+    // ... and rebuild them in reverse order, i.e., all children before their parent
+    OWLClassExpression exp = null;
+    for (int i = nodes.size() - 1; i >= 0; i--) {
+      exp = rebuildClassExpressionNode(nodes.get(i), children.get(i));
+    }
+    return exp;
+  }
+
+  // rebuilds the axiom of an axiom node from the (compiled) class expressions of its children
+  // (the structural hash of the node is updated as well)
+  private OWLAxiom rebuildAxiomNode(AxiomNode n, Collection<SyntaxNode> children) {
+    StructuralHash.of(n, children);
+    OWLAxiom axiom = n.getAxiom();
 
     // SubClassOf
     if (axiom instanceof OWLSubClassOfAxiom) {
@@ -78,10 +222,10 @@ public class OWLCompiler {
 
       for (SyntaxNode c : children) {
         if (c instanceof SubClassOfNode) {
-          sub = compileClassExpressionNode(c);
+          sub = ((SubClassOfNode) c).getExpression();
         }
         if (c instanceof SuperClassOfNode) {
-          sup = compileClassExpressionNode(c);
+          sup = ((SuperClassOfNode) c).getExpression();
         }
       }
 
@@ -95,7 +239,7 @@ public class OWLCompiler {
 
       Set<OWLClassExpression> arguments = new HashSet<>();
       for (SyntaxNode c : children) {
-        arguments.add(compileClassExpressionNode(c));
+        arguments.add((OWLClassExpression) c.getObject());
       }
       OWLAxiom a = this.factory.getOWLEquivalentClassesAxiom(arguments);
       n.setAxiom(a);
@@ -107,7 +251,7 @@ public class OWLCompiler {
 
       Set<OWLClassExpression> arguments = new HashSet<>();
       for (SyntaxNode c : children) {
-        arguments.add(compileClassExpressionNode(c));
+        arguments.add((OWLClassExpression) c.getObject());
       }
       OWLAxiom a = this.factory.getOWLDisjointClassesAxiom(arguments);
       n.setAxiom(a);
@@ -121,9 +265,9 @@ public class OWLCompiler {
       OWLClass unionNode = null;
       for (SyntaxNode c : children) {
         if (c instanceof UnionNode) {
-          unionNode = (OWLClass) compileClassExpressionNode(c);
+          unionNode = (OWLClass) c.getObject();
         } else {
-          arguments.add(compileClassExpressionNode(c));
+          arguments.add((OWLClassExpression) c.getObject());
         }
       }
       OWLAxiom a = this.factory.getOWLDisjointUnionAxiom(unionNode, arguments);
@@ -134,782 +278,114 @@ public class OWLCompiler {
     return null;
   }
 
-  public OWLClassExpression compileClassExpressionNode(SyntaxNode n) {
-
-    Set<SyntaxNode> children = getSubExpressionNodes(n);
-
-    // Class Node
+  // class expression nodes (ClassNode, SubClassOfNode, SuperClassOfNode, UnionNode)
+  // only differ in the position of their expression in their parent,
+  // so they are all rebuilt in the same way
+  private static void setExpression(SyntaxNode n, OWLClassExpression ce) {
     if (n instanceof ClassNode) {
-      ClassNode node = (ClassNode) n;
-      OWLClassExpression exp = node.getExpression();
-      // nothing to be done -- base case (or no nested class expressions)
-      if (exp instanceof OWLClass
-          || exp instanceof OWLDataSomeValuesFrom
-          || exp instanceof OWLDataAllValuesFrom
-          || exp instanceof OWLDataHasValue
-          || exp instanceof OWLDataMinCardinality
-          || exp instanceof OWLDataMaxCardinality
-          || exp instanceof OWLObjectOneOf
-          || exp instanceof OWLObjectHasSelf
-          || exp instanceof OWLObjectHasValue
-          || exp instanceof OWLDataExactCardinality) {
-        return exp;
-      }
-
-      if (exp instanceof OWLObjectSomeValuesFrom) {
-        OWLObjectPropertyExpression property = null;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectSomeValuesFrom(property, filler);
-        node.setExpression(change);
-        return change;
-      }
-
-      if (exp instanceof OWLObjectAllValuesFrom) {
-        OWLObjectPropertyExpression property = null;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectAllValuesFrom(property, filler);
-        node.setExpression(change);
-        return change;
-      }
-
-      if (exp instanceof OWLObjectComplementOf) {
-        OWLClassExpression argument = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            argument = compileClassExpressionNode(c);
-          }
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectComplementOf(argument);
-        node.setExpression(change);
-        return change;
-      }
-
-      if (exp instanceof OWLObjectExactCardinality) {
-
-        OWLObjectPropertyExpression property = null;
-        int cardinality = -1;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-          if (c instanceof CardinalityNode) {
-            CardinalityNode cnode = (CardinalityNode) c;
-            cardinality = cnode.getCardinality();
-          }
-        }
-
-        if (filler != null) {
-          OWLClassExpression change =
-              this.factory.getOWLObjectExactCardinality(cardinality, property, filler);
-          node.setExpression(change);
-          return change;
-        } else {
-          OWLClassExpression change =
-              this.factory.getOWLObjectExactCardinality(cardinality, property);
-          node.setExpression(change);
-          return change;
-        }
-      }
-
-      if (exp instanceof OWLObjectMinCardinality) {
-
-        OWLObjectPropertyExpression property = null;
-        int cardinality = -1;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-          if (c instanceof CardinalityNode) {
-            CardinalityNode cnode = (CardinalityNode) c;
-            cardinality = cnode.getCardinality();
-          }
-        }
-
-        if (filler != null) {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMinCardinality(cardinality, property, filler);
-          node.setExpression(change);
-          return change;
-        } else {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMinCardinality(cardinality, property);
-          node.setExpression(change);
-          return change;
-        }
-      }
-
-      if (exp instanceof OWLObjectMaxCardinality) {
-
-        OWLObjectPropertyExpression property = null;
-        int cardinality = -1;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-          if (c instanceof CardinalityNode) {
-            CardinalityNode cnode = (CardinalityNode) c;
-            cardinality = cnode.getCardinality();
-          }
-        }
-
-        if (filler != null) {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMaxCardinality(cardinality, property, filler);
-          node.setExpression(change);
-          return change;
-        } else {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMaxCardinality(cardinality, property);
-          node.setExpression(change);
-          return change;
-        }
-      }
-
-      if (exp instanceof OWLObjectIntersectionOf) {
-
-        Set<OWLClassExpression> arguments = new HashSet<>();
-        for (SyntaxNode c : children) {
-          arguments.add(compileClassExpressionNode(c));
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectIntersectionOf(arguments);
-        node.setExpression(change);
-        return change;
-      }
-
-      if (exp instanceof OWLObjectUnionOf) {
-
-        Set<OWLClassExpression> arguments = new HashSet<>();
-        for (SyntaxNode c : children) {
-          arguments.add(compileClassExpressionNode(c));
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectUnionOf(arguments);
-        node.setExpression(change);
-        return change;
-      }
+      ((ClassNode) n).setExpression(ce);
     }
-
     if (n instanceof SubClassOfNode) {
-      SubClassOfNode node = (SubClassOfNode) n;
-      OWLClassExpression exp = node.getExpression();
-      // nothing to be done -- base case (or no nested class expressions)
-      if (exp instanceof OWLClass
-          || exp instanceof OWLDataSomeValuesFrom
-          || exp instanceof OWLDataAllValuesFrom
-          || exp instanceof OWLDataHasValue
-          || exp instanceof OWLDataMinCardinality
-          || exp instanceof OWLDataMaxCardinality
-          || exp instanceof OWLObjectOneOf
-          || exp instanceof OWLObjectHasSelf
-          || exp instanceof OWLObjectHasValue
-          || exp instanceof OWLDataExactCardinality) {
-        return exp;
-      }
-
-      if (exp instanceof OWLObjectSomeValuesFrom) {
-        OWLObjectPropertyExpression property = null;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectSomeValuesFrom(property, filler);
-        node.setExpression(change);
-        return change;
-      }
-
-      if (exp instanceof OWLObjectAllValuesFrom) {
-        OWLObjectPropertyExpression property = null;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectAllValuesFrom(property, filler);
-        node.setExpression(change);
-        return change;
-      }
-
-      if (exp instanceof OWLObjectComplementOf) {
-        OWLClassExpression argument = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            argument = compileClassExpressionNode(c);
-          }
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectComplementOf(argument);
-        node.setExpression(change);
-        return change;
-      }
-
-      if (exp instanceof OWLObjectExactCardinality) {
-
-        OWLObjectPropertyExpression property = null;
-        int cardinality = -1;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-          if (c instanceof CardinalityNode) {
-            CardinalityNode cnode = (CardinalityNode) c;
-            cardinality = cnode.getCardinality();
-          }
-        }
-
-        if (filler != null) {
-          OWLClassExpression change =
-              this.factory.getOWLObjectExactCardinality(cardinality, property, filler);
-          node.setExpression(change);
-          return change;
-        } else {
-          OWLClassExpression change =
-              this.factory.getOWLObjectExactCardinality(cardinality, property);
-          node.setExpression(change);
-          return change;
-        }
-      }
-
-      if (exp instanceof OWLObjectMinCardinality) {
-
-        OWLObjectPropertyExpression property = null;
-        int cardinality = -1;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-          if (c instanceof CardinalityNode) {
-            CardinalityNode cnode = (CardinalityNode) c;
-            cardinality = cnode.getCardinality();
-          }
-        }
-
-        if (filler != null) {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMinCardinality(cardinality, property, filler);
-          node.setExpression(change);
-          return change;
-        } else {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMinCardinality(cardinality, property);
-          node.setExpression(change);
-          return change;
-        }
-      }
-
-      if (exp instanceof OWLObjectMaxCardinality) {
-
-        OWLObjectPropertyExpression property = null;
-        int cardinality = -1;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-          if (c instanceof CardinalityNode) {
-            CardinalityNode cnode = (CardinalityNode) c;
-            cardinality = cnode.getCardinality();
-          }
-        }
-
-        if (filler != null) {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMaxCardinality(cardinality, property, filler);
-          node.setExpression(change);
-          return change;
-        } else {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMaxCardinality(cardinality, property);
-          node.setExpression(change);
-          return change;
-        }
-      }
-
-      if (exp instanceof OWLObjectIntersectionOf) {
-
-        Set<OWLClassExpression> arguments = new HashSet<>();
-        for (SyntaxNode c : children) {
-          arguments.add(compileClassExpressionNode(c));
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectIntersectionOf(arguments);
-        node.setExpression(change);
-        return change;
-      }
-
-      if (exp instanceof OWLObjectUnionOf) {
-
-        Set<OWLClassExpression> arguments = new HashSet<>();
-        for (SyntaxNode c : children) {
-          arguments.add(compileClassExpressionNode(c));
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectUnionOf(arguments);
-        node.setExpression(change);
-        return change;
-      }
+      ((SubClassOfNode) n).setExpression(ce);
     }
-
     if (n instanceof SuperClassOfNode) {
-      SuperClassOfNode node = (SuperClassOfNode) n;
-      OWLClassExpression exp = node.getExpression();
-      // nothing to be done -- base case (or no nested class expressions)
-      if (exp instanceof OWLClass
-          || exp instanceof OWLDataSomeValuesFrom
-          || exp instanceof OWLDataAllValuesFrom
-          || exp instanceof OWLDataHasValue
-          || exp instanceof OWLDataMinCardinality
-          || exp instanceof OWLDataMaxCardinality
-          || exp instanceof OWLObjectOneOf
-          || exp instanceof OWLObjectHasSelf
-          || exp instanceof OWLObjectHasValue
-          || exp instanceof OWLDataExactCardinality) {
-        return exp;
-      }
-
-      if (exp instanceof OWLObjectSomeValuesFrom) {
-        OWLObjectPropertyExpression property = null;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectSomeValuesFrom(property, filler);
-        node.setExpression(change);
-        return change;
-      }
-
-      if (exp instanceof OWLObjectAllValuesFrom) {
-        OWLObjectPropertyExpression property = null;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectAllValuesFrom(property, filler);
-        node.setExpression(change);
-        return change;
-      }
-
-      if (exp instanceof OWLObjectComplementOf) {
-        OWLClassExpression argument = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            argument = compileClassExpressionNode(c);
-          }
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectComplementOf(argument);
-        node.setExpression(change);
-        return change;
-      }
-
-      if (exp instanceof OWLObjectExactCardinality) {
-
-        OWLObjectPropertyExpression property = null;
-        int cardinality = -1;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-          if (c instanceof CardinalityNode) {
-            CardinalityNode cnode = (CardinalityNode) c;
-            cardinality = cnode.getCardinality();
-          }
-        }
-
-        if (filler != null) {
-          OWLClassExpression change =
-              this.factory.getOWLObjectExactCardinality(cardinality, property, filler);
-          node.setExpression(change);
-          return change;
-        } else {
-          OWLClassExpression change =
-              this.factory.getOWLObjectExactCardinality(cardinality, property);
-          node.setExpression(change);
-          return change;
-        }
-      }
-
-      if (exp instanceof OWLObjectMinCardinality) {
-
-        OWLObjectPropertyExpression property = null;
-        int cardinality = -1;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-          if (c instanceof CardinalityNode) {
-            CardinalityNode cnode = (CardinalityNode) c;
-            cardinality = cnode.getCardinality();
-          }
-        }
+      ((SuperClassOfNode) n).setExpression(ce);
+    }
+    if (n instanceof UnionNode) {
+      ((UnionNode) n).setExpression(ce);
+    }
+  }
 
-        if (filler != null) {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMinCardinality(cardinality, property, filler);
-          node.setExpression(change);
-          return change;
-        } else {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMinCardinality(cardinality, property);
-          node.setExpression(change);
-          return change;
-        }
-      }
+  // rebuilds the class expression of a node from the (compiled) expressions of its children
+  // (the structural hash of the node is updated as well)
+  private OWLClassExpression rebuildClassExpressionNode(
+      SyntaxNode n, Collection<SyntaxNode> children) {
+    StructuralHash.of(n, children);
+
+    OWLClassExpression exp = (OWLClassExpression) n.getObject();
+    // nothing to be done -- base case (or no nested class expressions)
+    if (exp instanceof OWLClass
+        || exp instanceof OWLDataSomeValuesFrom
+        || exp instanceof OWLDataAllValuesFrom
+        || exp instanceof OWLDataHasValue
+        || exp instanceof OWLDataMinCardinality
+        || exp instanceof OWLDataMaxCardinality
+        || exp instanceof OWLObjectOneOf
+        || exp instanceof OWLObjectHasSelf
+        || exp instanceof OWLObjectHasValue
+        || exp instanceof OWLDataExactCardinality) {
+      return exp;
+    }
 
-      if (exp instanceof OWLObjectMaxCardinality) {
-
-        OWLObjectPropertyExpression property = null;
-        int cardinality = -1;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-          if (c instanceof CardinalityNode) {
-            CardinalityNode cnode = (CardinalityNode) c;
-            cardinality = cnode.getCardinality();
-          }
-        }
+    OWLObjectPropertyExpression property = null;
+    int cardinality = -1;
+    OWLClassExpression filler = null;
+    Set<OWLClassExpression> arguments = new HashSet<>();
 
-        if (filler != null) {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMaxCardinality(cardinality, property, filler);
-          node.setExpression(change);
-          return change;
-        } else {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMaxCardinality(cardinality, property);
-          node.setExpression(change);
-          return change;
-        }
+    for (SyntaxNode c : children) {
+      if (c instanceof ClassNode) {
+        filler = ((ClassNode) c).getExpression();
+        arguments.add(filler);
       }
-
-      if (exp instanceof OWLObjectIntersectionOf) {
-
-        Set<OWLClassExpression> arguments = new HashSet<>();
-        for (SyntaxNode c : children) {
-          arguments.add(compileClassExpressionNode(c));
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectIntersectionOf(arguments);
-        node.setExpression(change);
-        return change;
+      if (c instanceof PropertyNode) {
+        PropertyNode pnode = (PropertyNode) c;
+        property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
       }
-
-      if (exp instanceof OWLObjectUnionOf) {
-
-        Set<OWLClassExpression> arguments = new HashSet<>();
-        for (SyntaxNode c : children) {
-          arguments.add(compileClassExpressionNode(c));
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectUnionOf(arguments);
-        node.setExpression(change);
-        return change;
+      if (c instanceof CardinalityNode) {
+        CardinalityNode cnode = (CardinalityNode) c;
+        cardinality = cnode.getCardinality();
       }
     }
 
-    if (n instanceof UnionNode) {
-      UnionNode node = (UnionNode) n;
-      OWLClassExpression exp = node.getExpression();
-      // nothing to be done -- base case (or no nested class expressions)
-      if (exp instanceof OWLClass
-          || exp instanceof OWLDataSomeValuesFrom
-          || exp instanceof OWLDataAllValuesFrom
-          || exp instanceof OWLDataHasValue
-          || exp instanceof OWLDataMinCardinality
-          || exp instanceof OWLDataMaxCardinality
-          || exp instanceof OWLObjectOneOf
-          || exp instanceof OWLObjectHasSelf
-          || exp instanceof OWLObjectHasValue
-          || exp instanceof OWLDataExactCardinality) {
-        return exp;
-      }
-
-      if (exp instanceof OWLObjectSomeValuesFrom) {
-        OWLObjectPropertyExpression property = null;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectSomeValuesFrom(property, filler);
-        node.setExpression(change);
-        return change;
-      }
-
-      if (exp instanceof OWLObjectAllValuesFrom) {
-        OWLObjectPropertyExpression property = null;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectAllValuesFrom(property, filler);
-        node.setExpression(change);
-        return change;
-      }
-
-      if (exp instanceof OWLObjectComplementOf) {
-        OWLClassExpression argument = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            argument = compileClassExpressionNode(c);
-          }
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectComplementOf(argument);
-        node.setExpression(change);
-        return change;
-      }
+    OWLClassExpression change = null;
 
-      if (exp instanceof OWLObjectExactCardinality) {
-
-        OWLObjectPropertyExpression property = null;
-        int cardinality = -1;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-          if (c instanceof CardinalityNode) {
-            CardinalityNode cnode = (CardinalityNode) c;
-            cardinality = cnode.getCardinality();
-          }
-        }
+    if (exp instanceof OWLObjectSomeValuesFrom) {
+      change = this.factory.getOWLObjectSomeValuesFrom(property, filler);
+    }
 
-        if (filler != null) {
-          OWLClassExpression change =
-              this.factory.getOWLObjectExactCardinality(cardinality, property, filler);
-          node.setExpression(change);
-          return change;
-        } else {
-          OWLClassExpression change =
-              this.factory.getOWLObjectExactCardinality(cardinality, property);
-          node.setExpression(change);
-          return change;
-        }
-      }
+    if (exp instanceof OWLObjectAllValuesFrom) {
+      change = this.factory.getOWLObjectAllValuesFrom(property, filler);
+    }
 
-      if (exp instanceof OWLObjectMinCardinality) {
-
-        OWLObjectPropertyExpression property = null;
-        int cardinality = -1;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-          if (c instanceof CardinalityNode) {
-            CardinalityNode cnode = (CardinalityNode) c;
-            cardinality = cnode.getCardinality();
-          }
-        }
+    if (exp instanceof OWLObjectComplementOf) {
+      change = this.factory.getOWLObjectComplementOf(filler);
+    }
 
-        if (filler != null) {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMinCardinality(cardinality, property, filler);
-          node.setExpression(change);
-          return change;
-        } else {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMinCardinality(cardinality, property);
-          node.setExpression(change);
-          return change;
-        }
+    if (exp instanceof OWLObjectExactCardinality) {
+      if (filler != null) {
+        change = this.factory.getOWLObjectExactCardinality(cardinality, property, filler);
+      } else {
+        change = this.factory.getOWLObjectExactCardinality(cardinality, property);
       }
+    }
 
-      if (exp instanceof OWLObjectMaxCardinality) {
-
-        OWLObjectPropertyExpression property = null;
-        int cardinality = -1;
-        OWLClassExpression filler = null;
-
-        for (SyntaxNode c : children) {
-          if (c instanceof ClassNode) {
-            filler = compileClassExpressionNode(c);
-          }
-          if (c instanceof PropertyNode) {
-            PropertyNode pnode = (PropertyNode) c;
-            property = (OWLObjectPropertyExpression) pnode.getPropertyExpression();
-          }
-          if (c instanceof CardinalityNode) {
-            CardinalityNode cnode = (CardinalityNode) c;
-            cardinality = cnode.getCardinality();
-          }
-        }
-
-        if (filler != null) {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMaxCardinality(cardinality, property, filler);
-          node.setExpression(change);
-          return change;
-        } else {
-          OWLClassExpression change =
-              this.factory.getOWLObjectMaxCardinality(cardinality, property);
-          node.setExpression(change);
-          return change;
-        }
+    if (exp instanceof OWLObjectMinCardinality) {
+      if (filler != null) {
+        change = this.factory.getOWLObjectMinCardinality(cardinality, property, filler);
+      } else {
+        change = this.factory.getOWLObjectMinCardinality(cardinality, property);
       }
+    }
 
-      if (exp instanceof OWLObjectIntersectionOf) {
-
-        Set<OWLClassExpression> arguments = new HashSet<>();
-        for (SyntaxNode c : children) {
-          arguments.add(compileClassExpressionNode(c));
-        }
-
-        OWLClassExpression change = this.factory.getOWLObjectIntersectionOf(arguments);
-        node.setExpression(change);
-        return change;
+    if (exp instanceof OWLObjectMaxCardinality) {
+      if (filler != null) {
+        change = this.factory.getOWLObjectMaxCardinality(cardinality, property, filler);
+      } else {
+        change = this.factory.getOWLObjectMaxCardinality(cardinality, property);
       }
+    }
 
-      if (exp instanceof OWLObjectUnionOf) {
+    if (exp instanceof OWLObjectIntersectionOf) {
+      change = this.factory.getOWLObjectIntersectionOf(arguments);
+    }
 
-        Set<OWLClassExpression> arguments = new HashSet<>();
-        for (SyntaxNode c : children) {
-          arguments.add(compileClassExpressionNode(c));
-        }
+    if (exp instanceof OWLObjectUnionOf) {
+      change = this.factory.getOWLObjectUnionOf(arguments);
+    }
 
-        OWLClassExpression change = this.factory.getOWLObjectUnionOf(arguments);
-        node.setExpression(change);
-        return change;
-      }
+    if (change != null) {
+      setExpression(n, change);
     }
-    return null;
+    return change;
   }
 }
@@ -0,0 +1,131 @@
+package macro.term;
+
+import java.util.*;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+/** Replaces subterms of a term with macros (without building a syntax tree) */
+// Contraction is done top-down in a single pass over the term: a subterm that has a macro is
+// replaced and its own subterms are not considered anymore. This corresponds to contracting terms
+// from largest to smallest (cf. OWLRewriter.contractAll). Terms on the paths to replaced subterms
+// are rebuilt bottom-up; all other terms are reused as they are.
+//
+// Subterms are collected with an explicit stack, so deeply nested terms do not overflow the call
+// stack. A contractor does not have any state apart from its (read-only) look up table for macros.
+public class OWLContractor {
+
+  private Map<? extends OWLClassExpression, ? extends OWLClassExpression> evaluation2macro;
+  private OWLDataFactory factory;
+
+  public OWLContractor(
+      Map<? extends OWLClassExpression, ? extends OWLClassExpression> evaluation2macro) {
+    this.evaluation2macro = evaluation2macro;
+    this.factory = OWLManager.getOWLDataFactory();
+  }
+
+  /**
+   * Contracts all subterms of an expression (but not the expression itself).
+   *
+   * <p>NB: atomic classes are never contracted.
+   *
+   * @param exp the expression to be contracted
+   * @return the expression in which subterms are replaced with macros
+   */
+  public OWLClassExpression contractSubterms(OWLClassExpression exp) {
+    // collect terms in pre-order (terms with macros are contracted and not descended into)
+    Map<OWLClassExpression, OWLClassExpression> contracted = new HashMap<>();
+    List<OWLClassExpression> terms = new ArrayList<>();
+    Deque<OWLClassExpression> stack = new ArrayDeque<>();
+    terms.add(exp);
+    pushSubterms(exp, stack);
+    while (!stack.isEmpty()) {
+      OWLClassExpression e = stack.pop();
+      if (!(e instanceof OWLClass) && this.evaluation2macro.containsKey(e)) {
+        contracted.put(e, this.evaluation2macro.get(e));
+        continue;
+      }
+      terms.add(e);
+      pushSubterms(e, stack);
+    }
+
+    // rebuild terms in reverse order, i.e., all subterms before the terms they occur in
+    // (NB: equal subterms are contracted in the same way, so they can share a map entry)
+    for (int i = terms.size() - 1; i >= 0; i--) {
+      OWLClassExpression e = terms.get(i);
+      contracted.put(e, rebuild(e, contracted));
+    }
+    return contracted.get(exp);
+  }
+
+  // pushes the direct subterms of a term (in the positions of class expressions)
+  private static void pushSubterms(OWLClassExpression e, Deque<OWLClassExpression> stack) {
+    if (e instanceof OWLQuantifiedObjectRestriction) {
+      stack.push(((OWLQuantifiedObjectRestriction) e).getFiller());
+    } else if (e instanceof OWLObjectComplementOf) {
+      stack.push(((OWLObjectComplementOf) e).getOperand());
+    } else if (e instanceof OWLNaryBooleanClassExpression) {
+      for (OWLClassExpression o : ((OWLNaryBooleanClassExpression) e).getOperands()) {
+        stack.push(o);
+      }
+    }
+  }
+
+  // rebuilds a term from its (already contracted) subterms
+  // (the term itself is returned if none of its subterms changed)
+  private OWLClassExpression rebuild(
+      OWLClassExpression e, Map<OWLClassExpression, OWLClassExpression> contracted) {
+    if (e instanceof OWLQuantifiedObjectRestriction) {
+      OWLQuantifiedObjectRestriction r = (OWLQuantifiedObjectRestriction) e;
+      OWLClassExpression filler = contracted.get(r.getFiller());
+      if (filler == r.getFiller()) {
+        return e;
+      }
+      OWLObjectPropertyExpression property = r.getProperty();
+      if (e instanceof OWLObjectSomeValuesFrom) {
+        return this.factory.getOWLObjectSomeValuesFrom(property, filler);
+      }
+      if (e instanceof OWLObjectAllValuesFrom) {
+        return this.factory.getOWLObjectAllValuesFrom(property, filler);
+      }
+      int cardinality = ((OWLObjectCardinalityRestriction) e).getCardinality();
+      if (e instanceof OWLObjectExactCardinality) {
+        return this.factory.getOWLObjectExactCardinality(cardinality, property, filler);
+      }
+      if (e instanceof OWLObjectMinCardinality) {
+        return this.factory.getOWLObjectMinCardinality(cardinality, property, filler);
+      }
+      if (e instanceof OWLObjectMaxCardinality) {
+        return this.factory.getOWLObjectMaxCardinality(cardinality, property, filler);
+      }
+    }
+
+    if (e instanceof OWLObjectComplementOf) {
+      OWLClassExpression operand = ((OWLObjectComplementOf) e).getOperand();
+      OWLClassExpression contractedOperand = contracted.get(operand);
+      if (contractedOperand == operand) {
+        return e;
+      }
+      return this.factory.getOWLObjectComplementOf(contractedOperand);
+    }
+
+    if (e instanceof OWLNaryBooleanClassExpression) {
+      boolean changed = false;
+      Set<OWLClassExpression> operands = new HashSet<>();
+      for (OWLClassExpression o : ((OWLNaryBooleanClassExpression) e).getOperands()) {
+        OWLClassExpression contractedOperand = contracted.get(o);
+        changed |= contractedOperand != o;
+        operands.add(contractedOperand);
+      }
+      if (!changed) {
+        return e;
+      }
+      if (e instanceof OWLObjectIntersectionOf) {
+        return this.factory.getOWLObjectIntersectionOf(operands);
+      }
+      return this.factory.getOWLObjectUnionOf(operands);
+    }
+
+    // no nested class expressions
+    return e;
+  }
+}
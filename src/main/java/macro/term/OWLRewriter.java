@@ -30,13 +30,20 @@ public class OWLRewriter {
   private Set<SyntaxNode> matches;
   private SyntaxTreeBuilder builder;
 
+  // roots of the subtrees inserted by the last rewriting
+  private List<SyntaxNode> replacementRoots;
+  // if true, only ancestors of replaced nodes are recompiled after a rewriting
+  private boolean incrementalCompilation = true;
+
   public OWLRewriter() {
     this.matches = new HashSet<>();
     this.builder = new SyntaxTreeBuilder();
+    this.replacementRoots = new ArrayList<>();
   }
 
   public OWLRewriter(SyntaxTree tree, OWLClassExpression t, OWLClassExpression r) {
     this.builder = new SyntaxTreeBuilder();
+    this.replacementRoots = new ArrayList<>();
 
     this.synTree = tree;
     this.target = t;
@@ -51,6 +58,14 @@ public class OWLRewriter {
     this.compileOWL();
   }
 
+  public void setIncrementalCompilation(boolean incremental) {
+    this.incrementalCompilation = incremental;
+  }
+
+  public boolean isIncrementalCompilation() {
+    return this.incrementalCompilation;
+  }
+
   // NB: this mutates the given input tree!
   public void rewrite(SyntaxTree tree, OWLClassExpression t, OWLClassExpression r) {
     this.synTree = tree;
@@ -63,17 +78,224 @@ public class OWLRewriter {
     this.compileOWL();
   }
 
+  // NB: a compact syntax tree cannot be changed in place. So, this returns a new tree that shares
+  // all nodes of the input tree that are not replaced (and the input tree should not be used
+  // after the rewriting)
+  public CompactSyntaxTree rewrite(
+      CompactSyntaxTree tree, OWLClassExpression t, OWLClassExpression r) {
+    long hash = this.builder.buildCompact(t).getRoot().getHash();
+    boolean[] matched = new boolean[tree.getSize()];
+    for (int i = 0; i < tree.getSize(); i++) {
+      matched[i] =
+          tree.getKind(i) != CompactSyntaxTree.CARDINALITY
+              && tree.getNode(i).getHash() == hash
+              && tree.getObject(i).equals(t);
+    }
+    return replace(tree, matched, Collections.singletonMap(t, r));
+  }
+
+  // ===============================================================
+  // ===================BATCH REWRITING===========================
+  // ===============================================================
+
+  // The following methods apply a whole set of replacements in a single traversal of a tree (and
+  // compile it once) instead of calling 'rewrite' for each target.
+  //
+  // - contraction (replacing expressions with macros) is done top-down:
+  //   this corresponds to rewriting terms from largest to smallest,
+  //   i.e., a match is replaced and its subterms are not considered anymore
+  //   (NB: atomic classes are never contracted -- sequential contractions skip terms of size 1)
+  // - expansion (replacing macros with expressions) is done bottom-up:
+  //   a match is only replaced if none of its subterms has been replaced
+  //   (NB: inserted replacements are not rewritten again)
+
+  // NB: this mutates the given input tree!
+  public void contractAll(
+      SyntaxTree tree, Map<? extends OWLClassExpression, ? extends OWLClassExpression> r) {
+    this.synTree = tree;
+    this.tree = this.synTree.getTree();
+
+    // collect matches top-down (descendants of a match are not visited)
+    List<SyntaxNode> found = new ArrayList<>();
+    Deque<SyntaxNode> stack = new ArrayDeque<>();
+    stack.push(this.synTree.getRoot());
+    while (!stack.isEmpty()) {
+      SyntaxNode n = stack.pop();
+      if (isContractible(n) && r.containsKey(n.getObject())) {
+        found.add(n);
+        continue;
+      }
+      for (DefaultEdge e : this.tree.outgoingEdgesOf(n)) {
+        stack.push(this.tree.getEdgeTarget(e));
+      }
+    }
+    this.replaceAll(found, r);
+    this.compileOWL();
+  }
+
+  // NB: this mutates the given input tree!
+  public void expandAll(
+      SyntaxTree tree, Map<? extends OWLClassExpression, ? extends OWLClassExpression> r) {
+    this.synTree = tree;
+    this.tree = this.synTree.getTree();
+
+    // nodes in pre-order (so iterating backwards visits children before their parents)
+    List<SyntaxNode> nodes = new ArrayList<>();
+    Deque<SyntaxNode> stack = new ArrayDeque<>();
+    stack.push(this.synTree.getRoot());
+    while (!stack.isEmpty()) {
+      SyntaxNode n = stack.pop();
+      nodes.add(n);
+      for (DefaultEdge e : this.tree.outgoingEdgesOf(n)) {
+        stack.push(this.tree.getEdgeTarget(e));
+      }
+    }
+
+    // collect matches bottom-up (ancestors of a match are not replaced)
+    List<SyntaxNode> found = new ArrayList<>();
+    Set<SyntaxNode> changedBelow = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int i = nodes.size() - 1; i >= 0; i--) {
+      SyntaxNode n = nodes.get(i);
+      boolean changed = changedBelow.contains(n);
+      if (!changed && !(n instanceof CardinalityNode) && r.containsKey(n.getObject())) {
+        found.add(n);
+        changed = true;
+      }
+      if (changed) {
+        for (DefaultEdge e : this.tree.incomingEdgesOf(n)) {
+          changedBelow.add(this.tree.getEdgeSource(e));
+        }
+      }
+    }
+    this.replaceAll(found, r);
+    this.compileOWL();
+  }
+
+  // NB: returns a new tree (cf. rewrite(CompactSyntaxTree, ...))
+  public CompactSyntaxTree contractAll(
+      CompactSyntaxTree tree, Map<? extends OWLClassExpression, ? extends OWLClassExpression> r) {
+    // replace() skips the descendants of a match, so marking all matches results in a top-down
+    // rewriting
+    boolean[] matched = new boolean[tree.getSize()];
+    for (int i = 0; i < tree.getSize(); i++) {
+      matched[i] = isContractible(tree.getNode(i)) && r.containsKey(tree.getObject(i));
+    }
+    return replace(tree, matched, r);
+  }
+
+  // NB: returns a new tree (cf. rewrite(CompactSyntaxTree, ...))
+  public CompactSyntaxTree expandAll(
+      CompactSyntaxTree tree, Map<? extends OWLClassExpression, ? extends OWLClassExpression> r) {
+    int size = tree.getSize();
+    boolean[] matched = new boolean[size];
+    boolean[] changedBelow = new boolean[size];
+    for (int i = size - 1; i >= 0; i--) {
+      boolean changed = changedBelow[i];
+      if (!changed
+          && tree.getKind(i) != CompactSyntaxTree.CARDINALITY
+          && r.containsKey(tree.getObject(i))) {
+        matched[i] = true;
+        changed = true;
+      }
+      if (changed && i > 0) {
+        changedBelow[tree.getParent(i)] = true;
+      }
+    }
+    return replace(tree, matched, r);
+  }
+
+  private static boolean isContractible(SyntaxNode n) {
+    return !(n instanceof CardinalityNode) && !(n.getObject() instanceof OWLClass);
+  }
+
+  private void replaceAll(
+      List<SyntaxNode> found, Map<? extends OWLClassExpression, ? extends OWLClassExpression> r) {
+    this.replacementRoots.clear();
+    for (SyntaxNode m : found) {
+      this.target = (OWLClassExpression) m.getObject();
+      this.replacement = r.get(this.target);
+      this.replaceMatch(m);
+    }
+  }
+
+  // replaces all marked nodes (and their subtrees) in a compact syntax tree
+  // (a marked node inside the subtree of another marked node is not replaced)
+  private CompactSyntaxTree replace(
+      CompactSyntaxTree tree,
+      boolean[] matched,
+      Map<? extends OWLClassExpression, ? extends OWLClassExpression> r) {
+    int size = tree.getSize();
+    int[] subtreeSizes = tree.getSubtreeSizes();
+    CompactSyntaxTree.Builder res = new CompactSyntaxTree.Builder();
+    int[] replaced = new int[size];
+    int numberOfReplacements = 0;
+
+    // nodes are in pre-order, so a match and all of its descendants are stored consecutively
+    // and can be skipped at once
+    int i = 0;
+    while (i < size) {
+      SyntaxNode node = tree.getNode(i);
+      SyntaxNode parent = i > 0 ? tree.getNode(tree.getParent(i)) : null;
+      if (matched[i]) {
+        this.target = (OWLClassExpression) node.getObject();
+        this.replacement = r.get(this.target);
+        CompactSyntaxTree replacementTree = this.builder.buildCompact(this.replacement);
+        SyntaxNode replacementRoot = getReplacementRoot(node, replacementTree.getRoot());
+        replaced[numberOfReplacements++] = res.add(replacementRoot, parent);
+        for (int j = 1; j < replacementTree.getSize(); j++) {
+          int p = replacementTree.getParent(j);
+          res.add(
+              replacementTree.getNode(j), p == 0 ? replacementRoot : replacementTree.getNode(p));
+        }
+        i += subtreeSizes[i];
+      } else {
+        res.add(node, parent);
+        i++;
+      }
+    }
+
+    CompactSyntaxTree rewritten = res.build();
+    OWLCompiler compiler = new OWLCompiler(rewritten);
+    if (this.incrementalCompilation) {
+      compiler.compile(Arrays.copyOf(replaced, numberOfReplacements));
+    } else {
+      compiler.compile();
+    }
+    return rewritten;
+  }
+
+  // ensure that the replacement maintains the label of the match (cf. setReplacementTreeRoot)
+  // (labels do not change structural hashes)
+  private SyntaxNode getReplacementRoot(SyntaxNode match, SyntaxNode root) {
+    SyntaxNode labelled = root;
+    if (match instanceof SuperClassOfNode) {
+      labelled = new SuperClassOfNode(this.replacement);
+    }
+    if (match instanceof SubClassOfNode) {
+      labelled = new SubClassOfNode(this.replacement);
+    }
+    if (match instanceof UnionNode) {
+      labelled = new UnionNode(this.replacement);
+    }
+    labelled.setHash(root.getHash());
+    return labelled;
+  }
+
   // find all syntax nodes in the input tree
   // that are the root of 'isomorphic' trees to the one we want to replace
   // note that check for 'isomorphisms' using terms in OWL, that is,
   // every node can be associated with an OWL expression which can be tested for equality
+  // (structural hashes are compared first, so 'equals' is only called on hash hits)
   public Set<SyntaxNode> findMatches() {
     this.matches.clear();
+    long hash = this.builder.buildCompact(this.target).getRoot().getHash();
     for (SyntaxNode node : this.tree.vertexSet()) {
       // CardinalityNode are special in the sense that they contain symbols for integers,
       // which are not OWLObjects. Note that integer symbols are constant in the context of our
       // work and never need to be replaced with a macro. So, they can simply be excluded here
-      if (!(node instanceof CardinalityNode) && node.getObject().equals(this.target)) {
+      if (!(node instanceof CardinalityNode)
+          && node.getHash() == hash
+          && node.getObject().equals(this.target)) {
         matches.add(node);
       }
     }
@@ -82,67 +304,79 @@ public class OWLRewriter {
 
   public void compileOWL() {
     OWLCompiler compiler = new OWLCompiler(this.synTree);
-    compiler.compile();
+    if (this.incrementalCompilation) {
+      compiler.compile(this.replacementRoots);
+    } else {
+      compiler.compile();
+    }
   }
 
   private void replace() {
     // construct replacement tree
 
+    this.replacementRoots.clear();
+
     // NB: matches are initialisd in the 'rewrite' function before 'replace' is called
     for (SyntaxNode m : this.matches) {
-      this.replacementSynTree = builder.build(this.replacement);
-      this.replacementTree = this.replacementSynTree.getTree();
-
-      // ensure that the replacement tree maintains labels of the original tree that indicate order
-      // (this corresponds to edge labels described in our paper)
-      this.setReplacementTreeRoot(m);
-
-      // populate entry points
-      // an entry point is the 'parent node' of a term that needs to be replaced
-      // - there can be MULTIPLE entry points
-      // if a term occurs multiple times as a subterm in another term
-      // - there can be NO entry points, if the term has no parent
-      Set<SyntaxNode> entryPoints = getEntryPoints(m);
-
-      // if the entry points are empty, i.e.,
-      // there are no parents to which the replacement needs to be connected,
-      // then replace the entire term tree with the replacement
-      if (entryPoints.isEmpty()) {
-        this.replaceEntireTree();
-      } else {
-
-        // if there are entry points, then we need to 'rewire' the edges of the term tree
-        // accordingly
+      this.replaceMatch(m);
+    }
+  }
 
-        // remove nodes and edges that are being replaced
-        Set<DefaultEdge> edges2delete = getBranches(m);
-        Set<SyntaxNode> nodes2delete = getNodes(edges2delete);
-        if (nodes2delete.isEmpty()) {
-          nodes2delete.add(
-              m); // we are trying to delete a leaf node .. this doesn;t have branches- so the above
-          // code doesn't catch this
-        }
-        edges2delete.addAll(this.tree.incomingEdgesOf(m));
-        this.tree.removeAllEdges(edges2delete);
-        this.tree.removeAllVertices(nodes2delete);
+  // replaces the subtree rooted at the match with a tree for 'this.replacement'
+  private void replaceMatch(SyntaxNode m) {
+    this.replacementSynTree = builder.build(this.replacement);
+    this.replacementTree = this.replacementSynTree.getTree();
+
+    // ensure that the replacement tree maintains labels of the original tree that indicate order
+    // (this corresponds to edge labels described in our paper)
+    this.setReplacementTreeRoot(m);
+
+    // populate entry points
+    // an entry point is the 'parent node' of a term that needs to be replaced
+    // - there can be MULTIPLE entry points
+    // if a term occurs multiple times as a subterm in another term
+    // - there can be NO entry points, if the term has no parent
+    Set<SyntaxNode> entryPoints = getEntryPoints(m);
+
+    // if the entry points are empty, i.e.,
+    // there are no parents to which the replacement needs to be connected,
+    // then replace the entire term tree with the replacement
+    if (entryPoints.isEmpty()) {
+      this.replaceEntireTree();
+    } else {
+
+      // if there are entry points, then we need to 'rewire' the edges of the term tree
+      // accordingly
+
+      // remove nodes and edges that are being replaced
+      Set<DefaultEdge> edges2delete = getBranches(m);
+      Set<SyntaxNode> nodes2delete = getNodes(edges2delete);
+      if (nodes2delete.isEmpty()) {
+        nodes2delete.add(
+            m); // we are trying to delete a leaf node .. this doesn;t have branches- so the above
+        // code doesn't catch this
+      }
+      edges2delete.addAll(this.tree.incomingEdgesOf(m));
+      this.tree.removeAllEdges(edges2delete);
+      this.tree.removeAllVertices(nodes2delete);
 
-        // add nodes and edges corresponding to replacement
-        SyntaxNode replacementRoot = this.replacementSynTree.getRoot();
-        Set<SyntaxNode> newNodes = this.replacementSynTree.getTree().vertexSet();
-        Set<DefaultEdge> newEdges = this.replacementSynTree.getTree().edgeSet();
+      // add nodes and edges corresponding to replacement
+      SyntaxNode replacementRoot = this.replacementSynTree.getRoot();
+      Set<SyntaxNode> newNodes = this.replacementSynTree.getTree().vertexSet();
+      Set<DefaultEdge> newEdges = this.replacementSynTree.getTree().edgeSet();
 
-        for (SyntaxNode n : newNodes) {
-          this.tree.addVertex(n);
-        }
-        for (DefaultEdge e : newEdges) {
-          SyntaxNode source = this.replacementSynTree.getTree().getEdgeSource(e);
-          SyntaxNode target = this.replacementSynTree.getTree().getEdgeTarget(e);
-          this.tree.addEdge(source, target);
-        }
-        for (SyntaxNode n : entryPoints) {
-          this.tree.addEdge(n, replacementRoot);
-        }
+      for (SyntaxNode n : newNodes) {
+        this.tree.addVertex(n);
+      }
+      for (DefaultEdge e : newEdges) {
+        SyntaxNode source = this.replacementSynTree.getTree().getEdgeSource(e);
+        SyntaxNode target = this.replacementSynTree.getTree().getEdgeTarget(e);
+        this.tree.addEdge(source, target);
+      }
+      for (SyntaxNode n : entryPoints) {
+        this.tree.addEdge(n, replacementRoot);
       }
+      this.replacementRoots.add(replacementRoot);
     }
   }
 
@@ -166,6 +400,7 @@ public class OWLRewriter {
   private void setRootTo(SyntaxNode nr) {
 
     SyntaxNode r = this.replacementSynTree.getRoot();
+    nr.setHash(r.getHash());
     Set<DefaultEdge> rootBranches = this.replacementTree.outgoingEdgesOf(r);
 
     Set<SyntaxNode> children = new HashSet<>();
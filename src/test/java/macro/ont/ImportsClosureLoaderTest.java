@@ -0,0 +1,87 @@
+package macro.ont;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.*;
+import org.junit.rules.*;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+public class ImportsClosureLoaderTest {
+
+  private static final String BASE =
+      "<?xml version=\"1.0\"?>\n"
+          + "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\"\n"
+          + "    xmlns:rdfs=\"http://www.w3.org/2000/01/rdf-schema#\"\n"
+          + "    xmlns:owl=\"http://www.w3.org/2002/07/owl#\">\n"
+          + "  <owl:Ontology rdf:about=\"http://example.org/base\"/>\n"
+          + "  <owl:DatatypeProperty rdf:about=\"http://example.org/p\"/>\n"
+          + "  <rdfs:Datatype rdf:about=\"http://example.org/D\"/>\n"
+          + "</rdf:RDF>\n";
+
+  // uses 'p' and 'D' without declaring them
+  private static final String MAIN =
+      "<?xml version=\"1.0\"?>\n"
+          + "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\"\n"
+          + "    xmlns:rdfs=\"http://www.w3.org/2000/01/rdf-schema#\"\n"
+          + "    xmlns:owl=\"http://www.w3.org/2002/07/owl#\">\n"
+          + "  <owl:Ontology rdf:about=\"http://example.org/main\">\n"
+          + "    <owl:imports rdf:resource=\"http://example.org/base\"/>\n"
+          + "  </owl:Ontology>\n"
+          + "  <owl:Class rdf:about=\"http://example.org/A\">\n"
+          + "    <rdfs:subClassOf>\n"
+          + "      <owl:Restriction>\n"
+          + "        <owl:onProperty rdf:resource=\"http://example.org/p\"/>\n"
+          + "        <owl:someValuesFrom rdf:resource=\"http://example.org/D\"/>\n"
+          + "      </owl:Restriction>\n"
+          + "    </rdfs:subClassOf>\n"
+          + "  </owl:Class>\n"
+          + "</rdf:RDF>\n";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private File main;
+  private OWLAxiom expected;
+
+  @Before
+  public void setUp() throws IOException {
+    File dir = this.folder.newFolder("ontologies");
+    Files.write(new File(dir, "base.owl").toPath(), BASE.getBytes(StandardCharsets.UTF_8));
+    this.main = new File(dir, "main.owl");
+    Files.write(this.main.toPath(), MAIN.getBytes(StandardCharsets.UTF_8));
+
+    OWLDataFactory factory = OWLManager.getOWLDataFactory();
+    this.expected =
+        factory.getOWLSubClassOfAxiom(
+            factory.getOWLClass(IRI.create("http://example.org/A")),
+            factory.getOWLDataSomeValuesFrom(
+                factory.getOWLDataProperty(IRI.create("http://example.org/p")),
+                factory.getOWLDatatype(IRI.create("http://example.org/D"))));
+  }
+
+  @Test
+  public void testDataPropertyDeclaredInImport() throws OWLOntologyCreationException {
+    ImportsClosureLoader loader = new ImportsClosureLoader(List.of(), null, 2);
+    OWLOntology o = loader.load(this.main, OWLManager.createOWLOntologyManager());
+
+    assertEquals(Set.of(this.expected), o.getAxioms(AxiomType.SUBCLASS_OF));
+    assertTrue(loader.getUnresolvedImports().isEmpty());
+  }
+
+  @Test
+  public void testDataPropertyDeclaredInImportCached()
+      throws IOException, OWLOntologyCreationException {
+    File cache = this.folder.newFolder("cache");
+    for (int run = 0; run < 2; run++) {
+      ImportsClosureLoader loader = new ImportsClosureLoader(List.of(), cache, 2);
+      OWLOntology o = loader.load(this.main, OWLManager.createOWLOntologyManager());
+
+      assertEquals(Set.of(this.expected), o.getAxioms(AxiomType.SUBCLASS_OF));
+      assertEquals(run == 0 ? 0 : 2, loader.getCacheHits());
+    }
+  }
+}